@@ -39,6 +39,10 @@ public class Aggregation {
 
     private List<String> files = Collections.emptyList();
 
+    private String engine;
+
+    private List<String> dependencies = Collections.emptyList();
+
     /**
      * Gets the type.
      *
@@ -92,4 +96,40 @@ public class Aggregation {
     public void setFiles(List<String> files) {
         this.files = files;
     }
+
+    /**
+     * Gets the engine, which overrides the {@code cssEngine} or {@code jsEngine} option for this bundle.
+     *
+     * @return the engine name, or {@code null} to use the engine of the plugin configuration
+     */
+    public String getEngine() {
+        return engine;
+    }
+
+    /**
+     * Sets the engine.
+     *
+     * @param engine the engine to set
+     */
+    public void setEngine(String engine) {
+        this.engine = engine;
+    }
+
+    /**
+     * Gets the dependencies, the names of the JavaScript bundles loaded before this one whose code it uses.
+     *
+     * @return the dependencies
+     */
+    public List<String> getDependencies() {
+        return dependencies;
+    }
+
+    /**
+     * Sets the dependencies.
+     *
+     * @param dependencies the dependencies to set
+     */
+    public void setDependencies(List<String> dependencies) {
+        this.dependencies = dependencies;
+    }
 }
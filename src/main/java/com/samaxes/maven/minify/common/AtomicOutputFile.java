@@ -0,0 +1,136 @@
+/*
+ * Minify Maven Plugin
+ * https://github.com/samaxes/minify-maven-plugin
+ *
+ * Copyright (c) 2009 samaxes.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.samaxes.maven.minify.common;
+
+import com.google.common.io.ByteSource;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+/**
+ * Output file written through a temporary file in the same directory. Once complete, the temporary file replaces the
+ * output file atomically, so that readers never see a partially written file, and only if the content changed: an
+ * output file identical to the one of the previous build keeps its modification time, which spares the downstream steps
+ * relying on it, such as web application overlays, rsync or Docker layers.
+ */
+public class AtomicOutputFile implements Closeable {
+
+    private static final String TEMP_EXTENSION = ".tmp";
+
+    private final File file;
+
+    private final File tempFile;
+
+    /**
+     * Creates the temporary file of an output file. Create missing parent directories if needed.
+     *
+     * @param file the output file
+     * @throws IOException when the temporary file cannot be created
+     */
+    public AtomicOutputFile(File file) throws IOException {
+        if (!file.getParentFile().exists() && !file.getParentFile().mkdirs()) {
+            throw new IOException("Unable to create target directory for: " + file);
+        }
+
+        this.file = file;
+        // Hidden, so that tools scanning the target directory skip it
+        this.tempFile = File.createTempFile("." + file.getName() + "-", TEMP_EXTENSION, file.getParentFile());
+    }
+
+    /**
+     * Writes an output file, unless it already has the given content.
+     *
+     * @param file    the output file
+     * @param content the content to write
+     * @return {@code true} if the file was written, {@code false} if it was left untouched
+     * @throws IOException when the file cannot be written
+     */
+    public static boolean write(File file, byte[] content) throws IOException {
+        if (file.isFile() && file.length() == content.length
+                && Arrays.equals(Files.readAllBytes(file.toPath()), content)) {
+            return false;
+        }
+
+        try (AtomicOutputFile output = new AtomicOutputFile(file)) {
+            Files.write(output.getTempFile().toPath(), content);
+            return output.commit();
+        }
+    }
+
+    /**
+     * Checks if a file is the temporary file of an output file.
+     *
+     * @param file the file to check
+     * @return {@code true} if the file was created by this class
+     */
+    public static boolean isTempFile(File file) {
+        String name = file.getName();
+        return name.startsWith(".") && name.endsWith(TEMP_EXTENSION);
+    }
+
+    /**
+     * Gets the temporary file to write the content to.
+     *
+     * @return the temporary file
+     */
+    public File getTempFile() {
+        return tempFile;
+    }
+
+    /**
+     * Replaces the output file with the temporary file once it is completely written, unless both have the same
+     * content.
+     *
+     * @return {@code true} if the output file was replaced, {@code false} if it was left untouched
+     * @throws IOException when the output file cannot be replaced
+     */
+    public boolean commit() throws IOException {
+        if (file.isFile() && file.length() == tempFile.length()
+                && asByteSource(tempFile).contentEquals(asByteSource(file))) {
+            return false;
+        }
+
+        try {
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        return true;
+    }
+
+    /**
+     * Deletes the temporary file if it was not committed, leaving the output file as it was.
+     *
+     * @throws IOException when the temporary file cannot be deleted
+     */
+    @Override
+    public void close() throws IOException {
+        Files.deleteIfExists(tempFile.toPath());
+    }
+
+    private static ByteSource asByteSource(File file) {
+        return com.google.common.io.Files.asByteSource(file);
+    }
+}
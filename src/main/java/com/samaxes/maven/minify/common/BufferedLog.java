@@ -0,0 +1,212 @@
+/*
+ * Minify Maven Plugin
+ * https://github.com/samaxes/minify-maven-plugin
+ *
+ * Copyright (c) 2009 samaxes.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.samaxes.maven.minify.common;
+
+import org.apache.maven.plugin.logging.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link Log} that keeps messages in memory until {@link #flush()} is called. Lets concurrent tasks write their
+ * output as a single ordered block instead of interleaving lines on the shared Maven log.
+ */
+public class BufferedLog implements Log {
+
+    private enum Level {
+        DEBUG, INFO, WARN, ERROR
+    }
+
+    private static class Entry {
+
+        private final Level level;
+
+        private final CharSequence content;
+
+        private final Throwable error;
+
+        Entry(Level level, CharSequence content, Throwable error) {
+            this.level = level;
+            this.content = content;
+            this.error = error;
+        }
+    }
+
+    private final Log target;
+
+    private final List<Entry> entries = new ArrayList<>();
+
+    /**
+     * Buffered log constructor.
+     *
+     * @param target log where buffered messages are written when flushed
+     */
+    public BufferedLog(Log target) {
+        this.target = target;
+    }
+
+    /**
+     * Writes all buffered messages to the target log, in the order they were logged, and clears the buffer. The target
+     * log is locked while writing so that blocks flushed by different tasks never interleave.
+     */
+    public void flush() {
+        List<Entry> pending;
+        synchronized (entries) {
+            pending = new ArrayList<>(entries);
+            entries.clear();
+        }
+
+        synchronized (target) {
+            for (Entry entry : pending) {
+                write(entry);
+            }
+        }
+    }
+
+    @Override
+    public boolean isDebugEnabled() {
+        return target.isDebugEnabled();
+    }
+
+    @Override
+    public void debug(CharSequence content) {
+        add(Level.DEBUG, content, null);
+    }
+
+    @Override
+    public void debug(CharSequence content, Throwable error) {
+        add(Level.DEBUG, content, error);
+    }
+
+    @Override
+    public void debug(Throwable error) {
+        add(Level.DEBUG, null, error);
+    }
+
+    @Override
+    public boolean isInfoEnabled() {
+        return target.isInfoEnabled();
+    }
+
+    @Override
+    public void info(CharSequence content) {
+        add(Level.INFO, content, null);
+    }
+
+    @Override
+    public void info(CharSequence content, Throwable error) {
+        add(Level.INFO, content, error);
+    }
+
+    @Override
+    public void info(Throwable error) {
+        add(Level.INFO, null, error);
+    }
+
+    @Override
+    public boolean isWarnEnabled() {
+        return target.isWarnEnabled();
+    }
+
+    @Override
+    public void warn(CharSequence content) {
+        add(Level.WARN, content, null);
+    }
+
+    @Override
+    public void warn(CharSequence content, Throwable error) {
+        add(Level.WARN, content, error);
+    }
+
+    @Override
+    public void warn(Throwable error) {
+        add(Level.WARN, null, error);
+    }
+
+    @Override
+    public boolean isErrorEnabled() {
+        return target.isErrorEnabled();
+    }
+
+    @Override
+    public void error(CharSequence content) {
+        add(Level.ERROR, content, null);
+    }
+
+    @Override
+    public void error(CharSequence content, Throwable error) {
+        add(Level.ERROR, content, error);
+    }
+
+    @Override
+    public void error(Throwable error) {
+        add(Level.ERROR, null, error);
+    }
+
+    private void add(Level level, CharSequence content, Throwable error) {
+        if (level == Level.DEBUG && !target.isDebugEnabled()) {
+            return;
+        }
+
+        synchronized (entries) {
+            entries.add(new Entry(level, content, error));
+        }
+    }
+
+    private void write(Entry entry) {
+        switch (entry.level) {
+            case DEBUG:
+                if (entry.error == null) {
+                    target.debug(entry.content);
+                } else if (entry.content == null) {
+                    target.debug(entry.error);
+                } else {
+                    target.debug(entry.content, entry.error);
+                }
+                break;
+            case INFO:
+                if (entry.error == null) {
+                    target.info(entry.content);
+                } else if (entry.content == null) {
+                    target.info(entry.error);
+                } else {
+                    target.info(entry.content, entry.error);
+                }
+                break;
+            case WARN:
+                if (entry.error == null) {
+                    target.warn(entry.content);
+                } else if (entry.content == null) {
+                    target.warn(entry.error);
+                } else {
+                    target.warn(entry.content, entry.error);
+                }
+                break;
+            default:
+                if (entry.error == null) {
+                    target.error(entry.content);
+                } else if (entry.content == null) {
+                    target.error(entry.error);
+                } else {
+                    target.error(entry.content, entry.error);
+                }
+                break;
+        }
+    }
+}
@@ -0,0 +1,235 @@
+/*
+ * Minify Maven Plugin
+ * https://github.com/samaxes/minify-maven-plugin
+ *
+ * Copyright (c) 2009 samaxes.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.samaxes.maven.minify.common;
+
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Describes the source files, options and output files of a bundle as of its last successful build. A bundle does not
+ * need to be processed again when its manifest is still up to date.
+ */
+public class BuildManifest {
+
+    /**
+     * Size, modification time and SHA-256 digest of a file.
+     */
+    public static class FileState {
+
+        private String path;
+
+        private long size;
+
+        private long lastModified;
+
+        private String digest;
+
+        /**
+         * Describes a file. The digest of the previous state is reused when the size and modification time of the
+         * file did not change, so that unchanged files are not hashed again.
+         *
+         * @param file     the file to describe
+         * @param previous the state of the same file in a previous build, may be {@code null}
+         * @throws IOException when the file cannot be read
+         */
+        FileState(File file, FileState previous) throws IOException {
+            this.path = file.getPath();
+            this.size = file.length();
+            this.lastModified = file.lastModified();
+            if (previous != null && previous.size == size && previous.lastModified == lastModified) {
+                this.digest = previous.digest;
+            } else {
+                this.digest = digest(file);
+            }
+        }
+
+        /**
+         * Checks if the file still has this state.
+         *
+         * @return {@code true} if the file exists with the same content
+         * @throws IOException when the file cannot be read
+         */
+        boolean isIntact() throws IOException {
+            File file = new File(path);
+
+            return file.isFile() && file.length() == size
+                    && (file.lastModified() == lastModified || digest(file).equals(digest));
+        }
+
+        /**
+         * Checks if both states refer to the same file with the same content.
+         *
+         * @param other the state to compare with
+         * @return {@code true} if path and digest are the same
+         */
+        boolean isSameAs(FileState other) {
+            return path.equals(other.path) && digest.equals(other.digest);
+        }
+    }
+
+    private String fingerprint;
+
+    private List<FileState> inputs = new ArrayList<>();
+
+    private List<FileState> outputs = new ArrayList<>();
+
+    private transient Map<String, FileState> inputsByPath;
+
+    /**
+     * Manifest constructor.
+     *
+     * @param fingerprint a digest of the options used to process the bundle
+     */
+    public BuildManifest(String fingerprint) {
+        this.fingerprint = fingerprint;
+    }
+
+    /**
+     * Loads a manifest written by a previous build.
+     *
+     * @param file the manifest file
+     * @return the manifest, or {@code null} if there is no valid manifest
+     */
+    public static BuildManifest load(File file) {
+        if (!file.isFile()) {
+            return null;
+        }
+
+        try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+            BuildManifest manifest = new Gson().fromJson(reader, BuildManifest.class);
+            if (manifest == null || manifest.fingerprint == null) {
+                return null;
+            }
+            manifest.indexInputs();
+            return manifest;
+        } catch (IOException | JsonParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Stores this manifest for the next build.
+     *
+     * @param file the manifest file
+     * @throws IOException when the manifest cannot be written
+     */
+    public void store(File file) throws IOException {
+        if (!file.getParentFile().exists() && !file.getParentFile().mkdirs()) {
+            throw new IOException("Unable to create directory for: " + file);
+        }
+
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            new Gson().toJson(this, writer);
+        }
+    }
+
+    /**
+     * Adds a source file, in merge order.
+     *
+     * @param file     the source file
+     * @param previous the manifest of the previous build, used to avoid hashing unchanged files; may be {@code null}
+     * @throws IOException when the file cannot be read
+     */
+    public void addInput(File file, BuildManifest previous) throws IOException {
+        FileState previousState = null;
+        if (previous != null) {
+            if (previous.inputsByPath == null) {
+                previous.indexInputs();
+            }
+            previousState = previous.inputsByPath.get(file.getPath());
+        }
+        inputs.add(new FileState(file, previousState));
+    }
+
+    /**
+     * Indexes the source files by path, so that the state of each file of the next build is found at once.
+     */
+    private void indexInputs() {
+        inputsByPath = new HashMap<>();
+        for (FileState input : inputs) {
+            inputsByPath.put(input.path, input);
+        }
+    }
+
+    /**
+     * Adds a file produced by the build.
+     *
+     * @param file the output file
+     * @throws IOException when the file cannot be read
+     */
+    public void addOutput(File file) throws IOException {
+        outputs.add(new FileState(file, null));
+    }
+
+    /**
+     * Checks if the bundle described by the given manifest can be skipped, i.e. if it has the same options and source
+     * files as this one and if the output files of this manifest were not modified or deleted.
+     *
+     * @param current the manifest describing the bundle as it would be built now
+     * @return {@code true} if the bundle is up to date
+     * @throws IOException when an output file cannot be read
+     */
+    public boolean isUpToDate(BuildManifest current) throws IOException {
+        if (!fingerprint.equals(current.fingerprint) || inputs.size() != current.inputs.size() || outputs.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < inputs.size(); i++) {
+            if (!inputs.get(i).isSameAs(current.inputs.get(i))) {
+                return false;
+            }
+        }
+        for (FileState output : outputs) {
+            if (!output.isIntact()) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Computes the SHA-256 digest of a file.
+     *
+     * @param file the file to hash
+     * @return the hex encoded digest
+     * @throws IOException when the file cannot be read
+     */
+    public static String digest(File file) throws IOException {
+        return Files.hash(file, Hashing.sha256()).toString();
+    }
+
+    /**
+     * Computes the SHA-256 digest of a string.
+     *
+     * @param value the string to hash
+     * @return the hex encoded digest
+     */
+    public static String digest(String value) {
+        return Hashing.sha256().hashString(value, StandardCharsets.UTF_8).toString();
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Minify Maven Plugin
+ * https://github.com/samaxes/minify-maven-plugin
+ *
+ * Copyright (c) 2009 samaxes.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.samaxes.maven.minify.common;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of processing a bundle, with the sizes of each minified file.
+ */
+public class BundleResult {
+
+    /**
+     * Sizes of a minified file.
+     */
+    public static class FileResult {
+
+        private final File minifiedFile;
+
+        private final long uncompressedSize;
+
+        private final long minifiedSize;
+
+        private volatile long gzippedSize = -1;
+
+        /**
+         * Init FileResult values.
+         *
+         * @param minifiedFile     the minified file
+         * @param uncompressedSize the size of the file before minification
+         * @param minifiedSize     the size of the minified file
+         */
+        public FileResult(File minifiedFile, long uncompressedSize, long minifiedSize) {
+            this.minifiedFile = minifiedFile;
+            this.uncompressedSize = uncompressedSize;
+            this.minifiedSize = minifiedSize;
+        }
+
+        /**
+         * Gets the minifiedFile.
+         *
+         * @return the minifiedFile
+         */
+        public File getMinifiedFile() {
+            return minifiedFile;
+        }
+
+        /**
+         * Gets the uncompressedSize.
+         *
+         * @return the uncompressedSize
+         */
+        public long getUncompressedSize() {
+            return uncompressedSize;
+        }
+
+        /**
+         * Gets the minifiedSize.
+         *
+         * @return the minifiedSize
+         */
+        public long getMinifiedSize() {
+            return minifiedSize;
+        }
+
+        /**
+         * Gets the gzippedSize.
+         *
+         * @return the gzippedSize, or {@code -1} if not computed
+         */
+        public long getGzippedSize() {
+            return gzippedSize;
+        }
+
+        /**
+         * Sets the gzippedSize.
+         *
+         * @param gzippedSize the size of the minified file once gzipped
+         */
+        public void setGzippedSize(long gzippedSize) {
+            this.gzippedSize = gzippedSize;
+        }
+    }
+
+    private final String key;
+
+    private volatile boolean upToDate;
+
+    private final List<FileResult> files = Collections.synchronizedList(new ArrayList<FileResult>());
+
+    /**
+     * Init BundleResult values.
+     *
+     * @param key the key identifying the bundle
+     */
+    public BundleResult(String key) {
+        this.key = key;
+    }
+
+    /**
+     * Gets the key.
+     *
+     * @return the key
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * Gets the upToDate.
+     *
+     * @return {@code true} if the bundle was skipped because it did not change since the previous build
+     */
+    public boolean isUpToDate() {
+        return upToDate;
+    }
+
+    /**
+     * Sets the upToDate.
+     *
+     * @param upToDate whether the bundle was skipped
+     */
+    public void setUpToDate(boolean upToDate) {
+        this.upToDate = upToDate;
+    }
+
+    /**
+     * Gets the minified files, in the order they were produced.
+     *
+     * @return a copy of the minified files list
+     */
+    public List<FileResult> getFiles() {
+        synchronized (files) {
+            return new ArrayList<>(files);
+        }
+    }
+
+    /**
+     * Adds a minified file. Safe to call from concurrent sub-tasks.
+     *
+     * @param file the minified file sizes
+     */
+    public void addFile(FileResult file) {
+        files.add(file);
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Minify Maven Plugin
+ * https://github.com/samaxes/minify-maven-plugin
+ *
+ * Copyright (c) 2009 samaxes.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.samaxes.maven.minify.common;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Incremental build and cache configuration.
+ */
+public class CacheConfig {
+
+    private final boolean incremental;
+
+    private final File manifestDir;
+
+    private final MinifyCache fileCache;
+
+    private final MinifyCache sharedCache;
+
+    private final SourceCache sourceCache;
+
+    /**
+     * Init CacheConfig values.
+     *
+     * @param incremental skip bundles that did not change since the previous build
+     * @param manifestDir directory where the build manifest of each bundle is kept
+     * @param fileCache   cache of the files minified individually when the merge step is skipped, may be {@code null}
+     * @param sharedCache cache of minified files shared by all builds on this machine, may be {@code null}
+     * @param sourceCache cache of the source files read by several bundles, may be {@code null}
+     */
+    public CacheConfig(boolean incremental, File manifestDir, MinifyCache fileCache, MinifyCache sharedCache,
+                       SourceCache sourceCache) {
+        this.incremental = incremental;
+        this.manifestDir = manifestDir;
+        this.fileCache = fileCache;
+        this.sharedCache = sharedCache;
+        this.sourceCache = sourceCache;
+    }
+
+    /**
+     * Gets the incremental.
+     *
+     * @return the incremental
+     */
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    /**
+     * Gets the manifestDir.
+     *
+     * @return the manifestDir
+     */
+    public File getManifestDir() {
+        return manifestDir;
+    }
+
+    /**
+     * Gets the fileCache.
+     *
+     * @return the fileCache, or {@code null} if disabled
+     */
+    public MinifyCache getFileCache() {
+        return fileCache;
+    }
+
+    /**
+     * Gets the sharedCache.
+     *
+     * @return the sharedCache, or {@code null} if disabled
+     */
+    public MinifyCache getSharedCache() {
+        return sharedCache;
+    }
+
+    /**
+     * Gets the sourceCache.
+     *
+     * @return the sourceCache, or {@code null} if disabled
+     */
+    public SourceCache getSourceCache() {
+        return sourceCache;
+    }
+
+    /**
+     * Gets the enabled caches, in lookup order: the build cache first, then the shared one.
+     *
+     * @return the enabled caches
+     */
+    public List<MinifyCache> getCaches() {
+        List<MinifyCache> caches = new ArrayList<>();
+        if (fileCache != null) {
+            caches.add(fileCache);
+        }
+        if (sharedCache != null) {
+            caches.add(sharedCache);
+        }
+        return caches;
+    }
+}
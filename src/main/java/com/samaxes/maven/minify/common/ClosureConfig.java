@@ -23,9 +23,7 @@ import com.google.javascript.jscomp.*;
 import com.google.javascript.jscomp.CompilerOptions.LanguageMode;
 import com.google.javascript.jscomp.SourceMap.Format;
 
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 
 /**
  * <a href="https://developers.google.com/closure/compiler/">Google Closure Compiler</a> configuration.
@@ -224,4 +222,31 @@ public class ClosureConfig {
     public Map<String, Object> getDefineReplacements() {
         return defineReplacements;
     }
+
+    /**
+     * Describes the options, so that configuration changes can be detected between builds. Externs are described by
+     * their names only.
+     *
+     * @return the options description
+     */
+    @Override
+    public String toString() {
+        List<String> externNames = new ArrayList<>();
+        for (SourceFile extern : externs) {
+            externNames.add(extern.getName());
+        }
+        Map<String, CheckLevel> sortedWarningLevels = new TreeMap<>();
+        if (warningLevels != null) {
+            for (Map.Entry<DiagnosticGroup, CheckLevel> warningLevel : warningLevels.entrySet()) {
+                sortedWarningLevels.put(warningLevel.getKey().toString(), warningLevel.getValue());
+            }
+        }
+
+        return "ClosureConfig{languageIn=" + languageIn + ", languageOut=" + languageOut + ", environment="
+                + environment + ", compilationLevel=" + compilationLevel + ", dependencyOptions=" + dependencyOptions
+                + ", externs=" + externNames + ", sourceMapFormat=" + sourceMapFormat + ", warningLevels="
+                + sortedWarningLevels + ", colorizeErrorOutput=" + colorizeErrorOutput + ", angularPass="
+                + angularPass + ", extraAnnotations=" + extraAnnotations + ", defineReplacements="
+                + new TreeMap<>(defineReplacements) + "}";
+    }
 }
@@ -0,0 +1,124 @@
+/*
+ * Minify Maven Plugin
+ * https://github.com/samaxes/minify-maven-plugin
+ *
+ * Copyright (c) 2009 samaxes.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.samaxes.maven.minify.common;
+
+import com.google.common.hash.Hashing;
+import com.google.javascript.jscomp.CommandLineRunner;
+import com.google.javascript.jscomp.CompilerOptions;
+import com.google.javascript.jscomp.SourceFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Loads Google Closure Compiler externs once per JVM, so that they are shared by all tasks and plugin executions
+ * instead of being read again for every compilation. The returned source files have their code already loaded and can
+ * safely be used by concurrent compilations.
+ */
+public final class ClosureExterns {
+
+    /**
+     * An extern file with the state it had when it was read.
+     */
+    private static class CachedExtern {
+
+        private final long size;
+
+        private final long lastModified;
+
+        private final String digest;
+
+        private final SourceFile sourceFile;
+
+        CachedExtern(long size, long lastModified, String digest, SourceFile sourceFile) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.digest = digest;
+            this.sourceFile = sourceFile;
+        }
+    }
+
+    private static final ConcurrentMap<CompilerOptions.Environment, List<SourceFile>> BUILTIN_EXTERNS =
+            new ConcurrentHashMap<>();
+
+    private static final ConcurrentMap<String, CachedExtern> CUSTOM_EXTERNS = new ConcurrentHashMap<>();
+
+    private ClosureExterns() {
+    }
+
+    /**
+     * Gets the externs bundled with the compiler for the given environment.
+     *
+     * @param environment the set of builtin externs to load
+     * @return the builtin externs
+     * @throws IOException when the externs cannot be read from the compiler jar
+     */
+    public static List<SourceFile> getBuiltinExterns(CompilerOptions.Environment environment) throws IOException {
+        List<SourceFile> externs = BUILTIN_EXTERNS.get(environment);
+        if (externs == null) {
+            synchronized (BUILTIN_EXTERNS) {
+                externs = BUILTIN_EXTERNS.get(environment);
+                if (externs == null) {
+                    externs = CommandLineRunner.getBuiltinExterns(environment);
+                    for (SourceFile extern : externs) {
+                        extern.getCode();
+                    }
+                    externs = Collections.unmodifiableList(externs);
+                    BUILTIN_EXTERNS.put(environment, externs);
+                }
+            }
+        }
+
+        return externs;
+    }
+
+    /**
+     * Gets an extern file. The cached copy is reused as long as the size and modification time of the file, or else
+     * its digest, did not change.
+     *
+     * @param file    the extern file
+     * @param charset the extern file encoding
+     * @return the extern source file, named after the file path
+     * @throws IOException when the file cannot be read
+     */
+    public static SourceFile getExtern(File file, Charset charset) throws IOException {
+        String key = file.getPath() + File.pathSeparator + charset.name();
+        long size = file.length();
+        long lastModified = file.lastModified();
+
+        CachedExtern cached = CUSTOM_EXTERNS.get(key);
+        if (cached != null && cached.size == size && cached.lastModified == lastModified) {
+            return cached.sourceFile;
+        }
+
+        byte[] content = Files.readAllBytes(file.toPath());
+        String digest = Hashing.sha256().hashBytes(content).toString();
+        SourceFile sourceFile = (cached != null && cached.digest.equals(digest)) ? cached.sourceFile
+                : SourceFile.fromCode(file.getPath(), new String(content, charset));
+        CUSTOM_EXTERNS.put(key, new CachedExtern(size, lastModified, digest, sourceFile));
+
+        return sourceFile;
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * Minify Maven Plugin
+ * https://github.com/samaxes/minify-maven-plugin
+ *
+ * Copyright (c) 2009 samaxes.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.samaxes.maven.minify.common;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinTask;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes gzip compressed copies of output files, for web servers that serve precompressed files such as nginx with
+ * {@code gzip_static}.<br/>
+ * Large files are split in blocks that are compressed in parallel when running inside a fork/join pool. Each block is
+ * primed with the last 32 KiB of the previous one and ends on a byte boundary, so that the blocks concatenate into a
+ * single deflate stream with almost the same ratio as a sequential compression.
+ */
+public class GzipCompressor {
+
+    /**
+     * Files larger than this are compressed in blocks.
+     */
+    private static final int PARALLEL_THRESHOLD = 1024 * 1024;
+
+    private static final int BLOCK_SIZE = 128 * 1024;
+
+    /**
+     * Size of the deflate window, i.e. how far back a block can refer to the previous one.
+     */
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+
+    private static final byte[] HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0};
+
+    private final long minSize;
+
+    private final boolean maxCompression;
+
+    /**
+     * Init GzipCompressor values.
+     *
+     * @param minSize        size, in bytes, below which files are not compressed
+     * @param maxCompression use the best compression level and keep the smallest of several deflate strategies
+     */
+    public GzipCompressor(long minSize, boolean maxCompression) {
+        this.minSize = minSize;
+        this.maxCompression = maxCompression;
+    }
+
+    /**
+     * Gets the file where the compressed copy of a file is written.
+     *
+     * @param file the file to compress
+     * @return the file with the {@code .gz} extension appended
+     */
+    public static File getGzipFile(File file) {
+        return new File(file.getPath() + ".gz");
+    }
+
+    /**
+     * Writes the compressed copy of a file, unless it did not change. Files smaller than the minimum size are not
+     * compressed, and any copy left by a previous build is deleted so that web servers do not serve stale content.
+     *
+     * @param file the file to compress
+     * @return the size of the compressed copy, or {@code -1} if the file is too small
+     * @throws IOException when the file cannot be read or the compressed copy cannot be written
+     */
+    public long compress(File file) throws IOException {
+        File gzipFile = getGzipFile(file);
+        byte[] content = Files.readAllBytes(file.toPath());
+        if (content.length < minSize) {
+            Files.deleteIfExists(gzipFile.toPath());
+            return -1;
+        }
+
+        List<byte[]> blocks = (content.length > PARALLEL_THRESHOLD && ForkJoinTask.inForkJoinPool())
+                ? deflateBlocks(content) : Collections.singletonList(deflate(content, 0, content.length, true));
+
+        CRC32 crc = new CRC32();
+        crc.update(content, 0, content.length);
+
+        int size = HEADER.length + 8;
+        for (byte[] block : blocks) {
+            size += block.length;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(size);
+        out.write(HEADER);
+        for (byte[] block : blocks) {
+            out.write(block);
+        }
+        writeInt(out, (int) crc.getValue());
+        writeInt(out, content.length);
+        AtomicOutputFile.write(gzipFile, out.toByteArray());
+
+        return size;
+    }
+
+    /**
+     * Compresses the blocks of a large file in parallel.
+     *
+     * @param content the file content
+     * @return the compressed blocks, in order
+     */
+    private List<byte[]> deflateBlocks(final byte[] content) {
+        List<ForkJoinTask<byte[]>> tasks = new ArrayList<>();
+        for (int offset = 0; offset < content.length; offset += BLOCK_SIZE) {
+            final int blockOffset = offset;
+            final int blockLength = Math.min(BLOCK_SIZE, content.length - offset);
+            tasks.add(ForkJoinTask.adapt(new Callable<byte[]>() {
+                @Override
+                public byte[] call() {
+                    return deflate(content, blockOffset, blockLength, blockOffset + blockLength == content.length);
+                }
+            }).fork());
+        }
+
+        List<byte[]> blocks = new ArrayList<>(tasks.size());
+        for (ForkJoinTask<byte[]> task : tasks) {
+            blocks.add(task.join());
+        }
+
+        return blocks;
+    }
+
+    /**
+     * Compresses a block to raw deflate data. In max compression mode, the block is compressed with each strategy and
+     * the smallest result is kept.
+     *
+     * @param content the file content
+     * @param offset  the block offset
+     * @param length  the block length
+     * @param last    whether this is the last block of the file
+     * @return the compressed block
+     */
+    private byte[] deflate(byte[] content, int offset, int length, boolean last) {
+        byte[] block = deflate(content, offset, length, last, Deflater.DEFAULT_STRATEGY);
+        if (maxCompression) {
+            byte[] filtered = deflate(content, offset, length, last, Deflater.FILTERED);
+            if (filtered.length < block.length) {
+                block = filtered;
+            }
+        }
+
+        return block;
+    }
+
+    private byte[] deflate(byte[] content, int offset, int length, boolean last, int strategy) {
+        Deflater deflater = new Deflater(maxCompression ? Deflater.BEST_COMPRESSION : Deflater.DEFAULT_COMPRESSION,
+                true);
+        try {
+            byte[] buffer = new byte[8192];
+            if (strategy != Deflater.DEFAULT_STRATEGY) {
+                // A new strategy only applies from the next call, which would compress pending input with the previous
+                // one and return early: apply it before there is any input
+                deflater.setStrategy(strategy);
+                deflater.deflate(buffer);
+            }
+            if (offset > 0) {
+                int dictionaryOffset = Math.max(0, offset - DICTIONARY_SIZE);
+                deflater.setDictionary(content, dictionaryOffset, offset - dictionaryOffset);
+            }
+            deflater.setInput(content, offset, length);
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream(length / 2 + 64);
+            if (last) {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    out.write(buffer, 0, deflater.deflate(buffer));
+                }
+            } else {
+                // A sync flush ends the block on a byte boundary without marking the end of the stream
+                int count;
+                do {
+                    count = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                    out.write(buffer, 0, count);
+                } while (count == buffer.length);
+            }
+
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static void writeInt(OutputStream out, int value) throws IOException {
+        out.write(value & 0xff);
+        out.write((value >>> 8) & 0xff);
+        out.write((value >>> 16) & 0xff);
+        out.write((value >>> 24) & 0xff);
+    }
+
+    /**
+     * Describes the options, so that configuration changes can be detected between builds.
+     *
+     * @return the options description
+     */
+    @Override
+    public String toString() {
+        return "GzipCompressor{minSize=" + minSize + ", maxCompression=" + maxCompression + "}";
+    }
+}
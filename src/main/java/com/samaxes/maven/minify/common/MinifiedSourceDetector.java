@@ -0,0 +1,113 @@
+/*
+ * Minify Maven Plugin
+ * https://github.com/samaxes/minify-maven-plugin
+ *
+ * Copyright (c) 2009 samaxes.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.samaxes.maven.minify.common;
+
+import org.codehaus.plexus.util.SelectorUtils;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Detects source files that are already minified, such as the {@code *.min.js} files shipped by libraries, so that
+ * they are copied as is instead of being minified again.<br/>
+ * A file is minified when its name matches one of the patterns, or when its lines are long and it has little
+ * whitespace. Only the first check is needed to tell the cost of a bundle; the second one reads the file content.
+ */
+public class MinifiedSourceDetector {
+
+    /**
+     * Files smaller than this are not worth the heuristic: a single short line would pass it.
+     */
+    private static final int MIN_SIZE = 512;
+
+    /**
+     * Average number of bytes per line above which a file may be minified.
+     */
+    private static final int MIN_AVERAGE_LINE_LENGTH = 200;
+
+    /**
+     * Share of whitespace bytes below which a file may be minified.
+     */
+    private static final double MAX_WHITESPACE_RATIO = 0.1;
+
+    private final List<String> patterns;
+
+    private final boolean heuristic;
+
+    /**
+     * Init MinifiedSourceDetector values.
+     *
+     * @param patterns  file name patterns of the minified files, e.g. {@code *.min.js}
+     * @param heuristic whether files whose name does not match are looked at too
+     */
+    public MinifiedSourceDetector(List<String> patterns, boolean heuristic) {
+        this.patterns = new ArrayList<>(patterns);
+        this.heuristic = heuristic;
+    }
+
+    /**
+     * Checks if the name of a file matches one of the patterns.
+     *
+     * @param file the source file
+     * @return {@code true} if the file is known to be minified without reading it
+     */
+    public boolean matches(File file) {
+        for (String pattern : patterns) {
+            if (SelectorUtils.match(pattern, file.getName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks if a file is already minified.
+     *
+     * @param file    the source file
+     * @param content the file content, in an ASCII compatible charset for the heuristic to apply
+     * @return {@code true} if the file is minified
+     */
+    public boolean isMinified(File file, byte[] content) {
+        if (matches(file)) {
+            return true;
+        }
+        if (!heuristic || content.length < MIN_SIZE) {
+            return false;
+        }
+
+        int lines = 1;
+        int whitespace = 0;
+        for (byte b : content) {
+            if (b == '\n') {
+                lines++;
+                whitespace++;
+            } else if (b == ' ' || b == '\t' || b == '\r') {
+                whitespace++;
+            }
+        }
+        return content.length / lines >= MIN_AVERAGE_LINE_LENGTH
+                && whitespace <= content.length * MAX_WHITESPACE_RATIO;
+    }
+
+    @Override
+    public String toString() {
+        return "MinifiedSourceDetector{patterns=" + patterns + ", heuristic=" + heuristic + "}";
+    }
+}
@@ -0,0 +1,253 @@
+/*
+ * Minify Maven Plugin
+ * https://github.com/samaxes/minify-maven-plugin
+ *
+ * Copyright (c) 2009 samaxes.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.samaxes.maven.minify.common;
+
+import com.google.common.hash.Hashing;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Content-addressed cache of minified files. Each entry holds a minified file and, when one was created, its source
+ * map. Entries are looked up by a key derived from the source file content, its name and the minification options.
+ * <p>
+ * Entries are published atomically, so a cache directory can be shared by concurrent builds. The modification time of
+ * an entry is updated on every hit, which lets {@link #trim(long)} evict the least recently used entries.
+ */
+public class MinifyCache {
+
+    private static final String SOURCE_MAP_EXTENSION = ".map";
+
+    private static final String TEMP_EXTENSION = ".tmp";
+
+    /**
+     * Age after which a temporary file is considered left over by an aborted build.
+     */
+    private static final long STALE_TEMP_AGE = TimeUnit.HOURS.toMillis(1);
+
+    private final File dir;
+
+    private final AtomicInteger hits = new AtomicInteger();
+
+    private final AtomicInteger misses = new AtomicInteger();
+
+    private final AtomicLong savedBytes = new AtomicLong();
+
+    /**
+     * Cache constructor.
+     *
+     * @param dir directory where the cache entries are kept
+     */
+    public MinifyCache(File dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * Computes the key of a cache entry.
+     *
+     * @param sourceFile   the source file
+     * @param content      the content of the source file
+     * @param minifiedFile the minified file
+     * @param fingerprint  a description of the options used to minify the file
+     * @return the cache key
+     */
+    public static String key(File sourceFile, byte[] content, File minifiedFile, String fingerprint) {
+        return BuildManifest.digest(fingerprint + "\n" + sourceFile.getName() + "\n" + minifiedFile.getName() + "\n"
+                + Hashing.sha256().hashBytes(content).toString());
+    }
+
+    /**
+     * Copies a cached minified file, and its source map if any, to the target location. Target files that already have
+     * the cached content are left untouched.
+     *
+     * @param key          the cache key
+     * @param sourceSize   the size of the source file, accounted as saved on a hit
+     * @param minifiedFile the minified file to restore
+     * @return {@code true} if the entry was found in the cache
+     * @throws IOException when the cached files cannot be copied
+     */
+    public boolean restore(String key, long sourceSize, File minifiedFile) throws IOException {
+        File entry = getEntry(key);
+        try {
+            if (entry.isFile()) {
+                File sourceMapEntry = new File(entry.getPath() + SOURCE_MAP_EXTENSION);
+                if (sourceMapEntry.isFile()) {
+                    copy(sourceMapEntry, new File(minifiedFile.getPath() + SOURCE_MAP_EXTENSION));
+                }
+                copy(entry, minifiedFile);
+                entry.setLastModified(System.currentTimeMillis());
+                hits.incrementAndGet();
+                savedBytes.addAndGet(sourceSize);
+
+                return true;
+            }
+        } catch (NoSuchFileException e) {
+            // Evicted by a concurrent build
+        }
+        misses.incrementAndGet();
+
+        return false;
+    }
+
+    /**
+     * Adds a minified file, and its source map if any, to the cache. The source map is published first, so that an
+     * entry is never visible without it.
+     *
+     * @param key          the cache key
+     * @param minifiedFile the minified file to store
+     * @throws IOException when the files cannot be copied to the cache
+     */
+    public void store(String key, File minifiedFile) throws IOException {
+        File entry = getEntry(key);
+        if (!entry.getParentFile().exists() && !entry.getParentFile().mkdirs()) {
+            throw new IOException("Unable to create cache directory: " + entry.getParentFile());
+        }
+
+        File sourceMap = new File(minifiedFile.getPath() + SOURCE_MAP_EXTENSION);
+        if (sourceMap.isFile()) {
+            publish(sourceMap, new File(entry.getPath() + SOURCE_MAP_EXTENSION));
+        }
+        publish(minifiedFile, entry);
+    }
+
+    /**
+     * Gets the number of lookups that found an entry.
+     *
+     * @return the hit count
+     */
+    public int getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Gets the number of lookups that did not find an entry.
+     *
+     * @return the miss count
+     */
+    public int getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Gets the total size of the source files that did not need to be minified thanks to this cache.
+     *
+     * @return the saved bytes
+     */
+    public long getSavedBytes() {
+        return savedBytes.get();
+    }
+
+    /**
+     * Evicts the least recently used entries until the cache is not larger than the given size. Temporary files left
+     * over by aborted builds are removed too.
+     *
+     * @param maxSize the maximum size of the cache in bytes
+     * @return the number of evicted entries
+     */
+    public int trim(long maxSize) {
+        File[] buckets = dir.listFiles();
+        if (buckets == null) {
+            return 0;
+        }
+
+        final List<File> entries = new ArrayList<>();
+        long size = 0;
+        long staleTime = System.currentTimeMillis() - STALE_TEMP_AGE;
+        for (File bucket : buckets) {
+            File[] files = bucket.listFiles();
+            if (files == null) {
+                continue;
+            }
+            for (File file : files) {
+                if (file.getName().endsWith(TEMP_EXTENSION)) {
+                    if (file.lastModified() < staleTime) {
+                        file.delete();
+                    }
+                    continue;
+                }
+                size += file.length();
+                if (!file.getName().endsWith(SOURCE_MAP_EXTENSION)) {
+                    entries.add(file);
+                }
+            }
+        }
+
+        Collections.sort(entries, new Comparator<File>() {
+            @Override
+            public int compare(File o1, File o2) {
+                return Long.compare(o1.lastModified(), o2.lastModified());
+            }
+        });
+
+        int evicted = 0;
+        for (File entry : entries) {
+            if (size <= maxSize) {
+                break;
+            }
+            File sourceMapEntry = new File(entry.getPath() + SOURCE_MAP_EXTENSION);
+            long entrySize = entry.length() + sourceMapEntry.length();
+            if (entry.delete()) {
+                sourceMapEntry.delete();
+                size -= entrySize;
+                evicted++;
+            }
+        }
+
+        return evicted;
+    }
+
+    private File getEntry(String key) {
+        return new File(new File(dir, key.substring(0, 2)), key);
+    }
+
+    /**
+     * Copies a cache entry to an output file, unless it already has the same content.
+     */
+    private static void copy(File entry, File target) throws IOException {
+        try (AtomicOutputFile output = new AtomicOutputFile(target)) {
+            Files.copy(entry.toPath(), output.getTempFile().toPath(), StandardCopyOption.REPLACE_EXISTING);
+            output.commit();
+        }
+    }
+
+    /**
+     * Copies a file to a temporary file next to the target and renames it, so that concurrent readers never see a
+     * partially written entry.
+     */
+    private void publish(File source, File target) throws IOException {
+        File temp = File.createTempFile(target.getName(), TEMP_EXTENSION, target.getParentFile());
+        try {
+            Files.copy(source.toPath(), temp.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp.toPath());
+        }
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * Minify Maven Plugin
+ * https://github.com/samaxes/minify-maven-plugin
+ *
+ * Copyright (c) 2009 samaxes.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.samaxes.maven.minify.common;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory cache of the content of the source files shared by several bundles, so that a file listed in many bundles
+ * is read once per execution instead of once per bundle. Files read by a single bundle are not cached.
+ * <p>
+ * Entries are keyed by canonical path and only used while the size and modification time of the file did not change.
+ * An entry is dropped once all the bundles that read the file got it, and the least recently used entries are evicted
+ * when the cache grows beyond its maximum size. Large entries can be kept off-heap, in direct buffers.
+ */
+public class SourceCache {
+
+    /**
+     * Size above which entries are kept off-heap when enabled.
+     */
+    private static final int OFF_HEAP_THRESHOLD = SourceFilesEnumeration.POOLED_BUFFER_SIZE;
+
+    /**
+     * Content of a source file, loaded by the first reader.
+     */
+    private static class Entry {
+
+        private long length;
+
+        private long lastModified;
+
+        private ByteBuffer content;
+
+        /**
+         * Size accounted for in the cache size, {@code 0} while the content is loading. Guarded by the cache.
+         */
+        private long size;
+    }
+
+    private final long maxSize;
+
+    private final boolean offHeap;
+
+    private final Map<String, Integer> references = new HashMap<>();
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long size;
+
+    private final AtomicInteger hits = new AtomicInteger();
+
+    private final AtomicLong savedBytes = new AtomicLong();
+
+    /**
+     * Cache constructor.
+     *
+     * @param maxSize the maximum size of the cached content, in bytes
+     * @param offHeap keep large entries in direct buffers, outside of the Java heap
+     */
+    public SourceCache(long maxSize, boolean offHeap) {
+        this.maxSize = maxSize;
+        this.offHeap = offHeap;
+    }
+
+    /**
+     * Sets the source files about to be read, once per bundle reading them. Files listed more than once are cached on
+     * their first read. Entries of files that are no longer listed are dropped.
+     *
+     * @param files the source files of each bundle
+     */
+    public synchronized void retain(Collection<File> files) {
+        references.clear();
+        for (File file : files) {
+            String path = getPath(file);
+            Integer count = references.get(path);
+            references.put(path, (count == null) ? 1 : count + 1);
+        }
+
+        for (Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<String, Entry> entry = it.next();
+            if (!references.containsKey(entry.getKey())) {
+                size -= entry.getValue().size;
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Gets the content of a source file shared by several bundles.
+     *
+     * @param file the source file
+     * @return a read-only buffer over the file content, or {@code null} if the file is not shared and should be read
+     * directly
+     * @throws IOException when the file cannot be read
+     */
+    public ByteBuffer get(File file) throws IOException {
+        String path = getPath(file);
+        long length = file.length();
+        long lastModified = file.lastModified();
+
+        Entry entry;
+        synchronized (this) {
+            Integer count = references.get(path);
+            if (count == null || length == 0 || length > maxSize) {
+                return null;
+            }
+            if (count > 1) {
+                references.put(path, count - 1);
+            } else {
+                references.remove(path);
+            }
+
+            entry = entries.get(path);
+            if (entry == null || (entry.size > 0 && (entry.length != length || entry.lastModified != lastModified))) {
+                if (entry != null) {
+                    size -= entry.size;
+                }
+                if (count == 1) {
+                    // Last reader of a file that was not cached
+                    entries.remove(path);
+                    return null;
+                }
+                entry = new Entry();
+                entries.put(path, entry);
+            } else if (count == 1) {
+                // Last reader: the entry is not needed anymore
+                entries.remove(path);
+                size -= entry.size;
+            }
+        }
+
+        ByteBuffer content;
+        synchronized (entry) {
+            if (entry.content == null) {
+                entry.length = length;
+                entry.lastModified = lastModified;
+                entry.content = read(file);
+                synchronized (this) {
+                    if (entries.get(path) == entry) {
+                        entry.size = entry.content.capacity();
+                        size += entry.size;
+                        evict();
+                    }
+                }
+            } else {
+                hits.incrementAndGet();
+                savedBytes.addAndGet(entry.content.limit());
+            }
+            content = entry.content;
+        }
+
+        return content.asReadOnlyBuffer();
+    }
+
+    /**
+     * Gets the number of reads served from memory.
+     *
+     * @return the cache hits
+     */
+    public int getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Gets the number of bytes that did not need to be read again.
+     *
+     * @return the size of the cache hits
+     */
+    public long getSavedBytes() {
+        return savedBytes.get();
+    }
+
+    /**
+     * Evicts the least recently used entries until the cache fits in its maximum size.
+     */
+    private void evict() {
+        for (Iterator<Entry> it = entries.values().iterator(); size > maxSize && it.hasNext(); ) {
+            Entry entry = it.next();
+            if (entry.size > 0) {
+                size -= entry.size;
+                it.remove();
+            }
+        }
+    }
+
+    private ByteBuffer read(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long length = channel.size();
+            ByteBuffer buffer = (offHeap && length > OFF_HEAP_THRESHOLD) ? ByteBuffer.allocateDirect((int) length)
+                    : ByteBuffer.allocate((int) length);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // Read until the end of the file
+            }
+            buffer.flip();
+
+            return buffer;
+        }
+    }
+
+    private static String getPath(File file) {
+        try {
+            return file.getCanonicalPath();
+        } catch (IOException e) {
+            return file.getAbsolutePath();
+        }
+    }
+}
@@ -21,33 +21,61 @@ package com.samaxes.maven.minify.common;
 import org.apache.maven.plugin.logging.Log;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardOpenOption;
 import java.util.Enumeration;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 /**
  * Used to initialize a {@code SequenceInputStream} with a {@code Enumeration<? extends InputStream>}. The input streams
  * that are produced by the enumeration will be read, in order, to provide the bytes to be read from the
  * {@code SequenceInputStream}.
+ * <p>
+ * Source files are read without allocating a stream buffer per file, into direct buffers shared by all the
+ * enumerations through a pool; files larger than {@link #POOLED_BUFFER_SIZE} are read one buffer at a time. A pooled
+ * buffer goes back to the pool, and the file is closed, when its stream is closed, which {@code SequenceInputStream}
+ * does as soon as the stream is fully read. Files are not memory-mapped: on Windows a mapping locks the file until it is
+ * garbage collected, so editors could not save it while the {@code watch} goal runs. Source files shared by several
+ * bundles are read from a {@link SourceCache} when one is given.
  */
 public class SourceFilesEnumeration implements Enumeration<InputStream> {
 
+    /**
+     * Size of the pooled buffers, and so the size above which source files are read in several steps.
+     */
+    static final int POOLED_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Maximum number of buffers kept in the pool while not in use.
+     */
+    private static final int MAX_POOLED_BUFFERS = 32;
+
+    private static final BlockingQueue<ByteBuffer> BUFFER_POOL = new ArrayBlockingQueue<>(MAX_POOLED_BUFFERS);
+
     private List<File> files;
 
+    private final SourceCache sourceCache;
+
     private int current = 0;
 
     /**
      * Enumeration public constructor.
      *
-     * @param log     Maven plugin log
-     * @param files   list of files
-     * @param verbose show source file paths in log output
+     * @param log         Maven plugin log
+     * @param files       list of files
+     * @param verbose     show source file paths in log output
+     * @param sourceCache cache of the source files read by several bundles, may be {@code null}
      */
-    public SourceFilesEnumeration(Log log, List<File> files, boolean verbose) {
+    public SourceFilesEnumeration(Log log, List<File> files, boolean verbose, SourceCache sourceCache) {
         this.files = files;
+        this.sourceCache = sourceCache;
 
         for (File file : files) {
             log.info("Processing source file [" + ((verbose) ? file.getPath() : file.getName()) + "].");
@@ -82,12 +110,142 @@ public class SourceFilesEnumeration implements Enumeration<InputStream> {
             current++;
 
             try {
-                is = new FileInputStream(nextElement);
-            } catch (FileNotFoundException e) {
+                ByteBuffer content = (sourceCache != null) ? sourceCache.get(nextElement) : null;
+                is = (content != null) ? new ByteBufferInputStream(content, false, null) : open(nextElement);
+            } catch (NoSuchFileException e) {
                 throw new NoSuchElementException("The path [" + nextElement.getPath() + "] cannot be found.");
+            } catch (IOException e) {
+                NoSuchElementException exception = new NoSuchElementException("The path [" + nextElement.getPath()
+                        + "] cannot be read.");
+                exception.initCause(e);
+                throw exception;
             }
         }
 
         return is;
     }
+
+    /**
+     * Opens a source file. Files that fit in a pooled buffer are read at once and closed, larger ones stay open until
+     * the stream is closed.
+     *
+     * @param file the source file
+     * @return a stream over the file content
+     * @throws IOException when the file cannot be read
+     */
+    private static InputStream open(File file) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        ByteBuffer buffer = BUFFER_POOL.poll();
+        if (buffer == null) {
+            buffer = ByteBuffer.allocateDirect(POOLED_BUFFER_SIZE);
+        }
+        try {
+            read(channel, buffer);
+        } catch (IOException e) {
+            release(buffer);
+            channel.close();
+            throw e;
+        }
+
+        if (buffer.limit() < buffer.capacity()) {
+            channel.close();
+            return new ByteBufferInputStream(buffer, true, null);
+        }
+        return new ByteBufferInputStream(buffer, true, channel);
+    }
+
+    /**
+     * Reads a file from its current position until the buffer is full or the end of the file is reached, then flips
+     * the buffer.
+     */
+    private static void read(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.clear();
+        while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+            // Read until the end of the file
+        }
+        buffer.flip();
+    }
+
+    private static void release(ByteBuffer buffer) {
+        buffer.clear();
+        BUFFER_POOL.offer(buffer);
+    }
+
+    /**
+     * Input stream reading the content of a buffer, refilled from a file when one is given.
+     */
+    private static final class ByteBufferInputStream extends InputStream {
+
+        private ByteBuffer buffer;
+
+        private final boolean pooled;
+
+        private final FileChannel channel;
+
+        ByteBufferInputStream(ByteBuffer buffer, boolean pooled, FileChannel channel) {
+            this.buffer = buffer;
+            this.pooled = pooled;
+            this.channel = channel;
+        }
+
+        @Override
+        public int read() throws IOException {
+            ensureOpen();
+            return (buffer.hasRemaining() || refill()) ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            ensureOpen();
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining() && !refill()) {
+                return -1;
+            }
+
+            int count = Math.min(len, buffer.remaining());
+            buffer.get(b, off, count);
+            return count;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            ensureOpen();
+            int count = (int) Math.max(0, Math.min(n, buffer.remaining()));
+            buffer.position(buffer.position() + count);
+            return count;
+        }
+
+        @Override
+        public int available() throws IOException {
+            ensureOpen();
+            return buffer.remaining();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (buffer != null && pooled) {
+                release(buffer);
+            }
+            buffer = null;
+            if (channel != null) {
+                channel.close();
+            }
+        }
+
+        private boolean refill() throws IOException {
+            if (channel == null) {
+                return false;
+            }
+            SourceFilesEnumeration.read(channel, buffer);
+            return buffer.hasRemaining();
+        }
+
+        private void ensureOpen() throws IOException {
+            if (buffer == null) {
+                throw new IOException("Stream closed");
+            }
+        }
+    }
 }
@@ -0,0 +1,167 @@
+/*
+ * Minify Maven Plugin
+ * https://github.com/samaxes/minify-maven-plugin
+ *
+ * Copyright (c) 2009 samaxes.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.samaxes.maven.minify.common;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Index of the bundles each source file belongs to, as of the last build. It lets a build that is told which files
+ * changed create and run only the tasks of the affected bundles.
+ */
+public class SourceIndex {
+
+    /**
+     * Where the source files of a bundle come from.
+     */
+    private static class Bundle {
+
+        private String sourceDir;
+
+        private boolean scanned;
+
+        Bundle(String sourceDir, boolean scanned) {
+            this.sourceDir = sourceDir;
+            this.scanned = scanned;
+        }
+    }
+
+    private String fingerprint;
+
+    private Map<String, Bundle> bundles = new HashMap<>();
+
+    private Map<String, Set<String>> sources = new HashMap<>();
+
+    /**
+     * Index constructor.
+     *
+     * @param fingerprint a digest of the configuration that defines the bundles and their source files
+     */
+    public SourceIndex(String fingerprint) {
+        this.fingerprint = fingerprint;
+    }
+
+    /**
+     * Loads the index written by a previous build.
+     *
+     * @param file        the index file
+     * @param fingerprint a digest of the current configuration
+     * @return the index, or {@code null} if there is no valid index for this configuration
+     */
+    public static SourceIndex load(File file, String fingerprint) {
+        if (!file.isFile()) {
+            return null;
+        }
+
+        try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+            SourceIndex index = new Gson().fromJson(reader, SourceIndex.class);
+            return (index == null || !fingerprint.equals(index.fingerprint) || index.bundles == null
+                    || index.sources == null) ? null : index;
+        } catch (IOException | JsonParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Stores this index for the next build.
+     *
+     * @param file the index file
+     * @throws IOException when the index cannot be written
+     */
+    public void store(File file) throws IOException {
+        if (!file.getParentFile().exists() && !file.getParentFile().mkdirs()) {
+            throw new IOException("Unable to create directory for: " + file);
+        }
+
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            new Gson().toJson(this, writer);
+        }
+    }
+
+    /**
+     * Adds a bundle, replacing any previous entry with the same key.
+     *
+     * @param key       the bundle identifier
+     * @param sourceDir the directory containing the source files
+     * @param scanned   whether the source directory is scanned for files matching include patterns
+     * @param files     the source files
+     */
+    public void putBundle(String key, File sourceDir, boolean scanned, List<File> files) {
+        for (Iterator<Set<String>> it = sources.values().iterator(); it.hasNext(); ) {
+            Set<String> keys = it.next();
+            if (keys.remove(key) && keys.isEmpty()) {
+                it.remove();
+            }
+        }
+        bundles.put(key, new Bundle(getPath(sourceDir), scanned));
+        for (File file : files) {
+            String path = getPath(file);
+            Set<String> keys = sources.get(path);
+            if (keys == null) {
+                keys = new HashSet<>();
+                sources.put(path, keys);
+            }
+            keys.add(key);
+        }
+    }
+
+    /**
+     * Gets the number of bundles.
+     *
+     * @return the bundle count
+     */
+    public int size() {
+        return bundles.size();
+    }
+
+    /**
+     * Gets the bundles affected by changed files: the bundles containing a changed file and, for an existing file that
+     * does not belong to any bundle, the bundles scanning a directory that contains it. Deleted files that did not
+     * belong to any bundle and directories are ignored.
+     *
+     * @param changedFiles the created, modified and deleted files
+     * @return the keys of the affected bundles
+     */
+    public Set<String> getAffectedBundles(Collection<File> changedFiles) {
+        Set<String> affectedBundles = new HashSet<>();
+        for (File changedFile : changedFiles) {
+            String path = getPath(changedFile);
+            Set<String> keys = sources.get(path);
+            if (keys != null) {
+                affectedBundles.addAll(keys);
+            } else if (changedFile.isFile()) {
+                for (Map.Entry<String, Bundle> bundle : bundles.entrySet()) {
+                    if (bundle.getValue().scanned && path.startsWith(bundle.getValue().sourceDir + File.separator)) {
+                        affectedBundles.add(bundle.getKey());
+                    }
+                }
+            }
+        }
+
+        return affectedBundles;
+    }
+
+    private static String getPath(File file) {
+        return file.toPath().toAbsolutePath().normalize().toString();
+    }
+}
@@ -0,0 +1,236 @@
+/*
+ * Minify Maven Plugin
+ * https://github.com/samaxes/minify-maven-plugin
+ *
+ * Copyright (c) 2009 samaxes.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.samaxes.maven.minify.common;
+
+import org.codehaus.plexus.util.AbstractScanner;
+import org.codehaus.plexus.util.MatchPatterns;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Finds the source files matching include and exclude patterns, with the same semantics as the plexus
+ * {@code DirectoryScanner}: patterns are relative to the source directory, default exclusions always apply and symbolic
+ * links are followed.<br/>
+ * Each source directory is walked once per plugin execution, its sub-directories in parallel, and the list of the files
+ * it contains is kept in memory: all the bundles scanning the same directory, or one of its sub-directories, are then
+ * matched against this snapshot instead of walking the file system again.
+ */
+public class SourceScanner {
+
+    /**
+     * Matches relative paths against precompiled include and exclude patterns.
+     */
+    private static class PathMatcher {
+
+        private final MatchPatterns includes;
+
+        private final MatchPatterns excludes;
+
+        PathMatcher(List<String> includes, List<String> excludes) {
+            List<String> allExcludes = new ArrayList<>(excludes);
+            allExcludes.addAll(Arrays.asList(AbstractScanner.DEFAULTEXCLUDES));
+            this.includes = MatchPatterns.from(normalize(includes));
+            this.excludes = MatchPatterns.from(normalize(allExcludes));
+        }
+
+        boolean matches(String path) {
+            // Tokenized once for all the patterns, the same way the plexus scanner does
+            StringTokenizer tokenizer = new StringTokenizer(path, File.separator);
+            String[] tokens = new String[tokenizer.countTokens()];
+            for (int i = 0; i < tokens.length; i++) {
+                tokens[i] = tokenizer.nextToken();
+            }
+
+            return includes.matches(path, tokens, true) && !excludes.matches(path, tokens, true);
+        }
+
+        /**
+         * Normalizes patterns the way the plexus scanner does: separators are those of the platform and a pattern
+         * ending with a separator matches everything under that directory.
+         */
+        private static List<String> normalize(List<String> patterns) {
+            List<String> normalized = new ArrayList<>();
+            for (String pattern : patterns) {
+                pattern = pattern.trim();
+                if (pattern.startsWith("%regex[")) {
+                    pattern = (File.separatorChar == '\\') ? pattern.replace("/", "\\\\")
+                            : pattern.replace("\\\\", "/");
+                } else {
+                    pattern = pattern.replace(File.separatorChar == '/' ? '\\' : '/', File.separatorChar);
+                    if (pattern.endsWith(File.separator)) {
+                        pattern += "**";
+                    }
+                }
+                normalized.add(pattern);
+            }
+            return normalized;
+        }
+    }
+
+    private final ExecutorService executor;
+
+    private final ConcurrentMap<Path, List<String>> snapshots = new ConcurrentHashMap<>();
+
+    /**
+     * Scanner constructor.
+     *
+     * @param executor the threads walking the sub-directories of a source directory, or {@code null} to walk them one
+     *                 after the other
+     */
+    public SourceScanner(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Gets the files of a directory matching the given patterns.
+     *
+     * @param baseDir  the directory to scan
+     * @param includes the include patterns
+     * @param excludes the exclude patterns, in addition to the default exclusions
+     * @return the matching files, sorted by path
+     * @throws IllegalStateException when the directory does not exist or cannot be read
+     */
+    public List<File> scan(File baseDir, List<String> includes, List<String> excludes) {
+        if (!baseDir.isDirectory()) {
+            throw new IllegalStateException("basedir " + baseDir + " does not exist");
+        }
+
+        PathMatcher matcher = new PathMatcher(includes, excludes);
+        List<File> files = new ArrayList<>();
+        for (String path : getSnapshot(baseDir.toPath().toAbsolutePath().normalize())) {
+            if (matcher.matches(path)) {
+                files.add(new File(baseDir, path));
+            }
+        }
+
+        return files;
+    }
+
+    /**
+     * Gets the relative paths of all the files in a directory, derived from the snapshot of a parent directory when
+     * there is one.
+     */
+    private List<String> getSnapshot(Path dir) {
+        List<String> snapshot = snapshots.get(dir);
+        if (snapshot != null) {
+            return snapshot;
+        }
+
+        for (Map.Entry<Path, List<String>> parent : snapshots.entrySet()) {
+            if (dir.startsWith(parent.getKey())) {
+                String prefix = parent.getKey().relativize(dir).toString() + File.separator;
+                snapshot = new ArrayList<>();
+                for (String path : parent.getValue()) {
+                    if (path.startsWith(prefix)) {
+                        snapshot.add(path.substring(prefix.length()));
+                    }
+                }
+                break;
+            }
+        }
+        if (snapshot == null) {
+            try {
+                snapshot = walk(dir);
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to scan the directory [" + dir + "].", e);
+            }
+        }
+        snapshots.put(dir, snapshot);
+
+        return snapshot;
+    }
+
+    /**
+     * Lists the files of a directory, walking each of its sub-directories in a separate thread.
+     */
+    private List<String> walk(final Path dir) throws IOException {
+        List<String> paths = new ArrayList<>();
+        List<Path> subDirs = new ArrayList<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+            for (Path entry : entries) {
+                if (Files.isDirectory(entry)) {
+                    subDirs.add(entry);
+                } else if (Files.isRegularFile(entry)) {
+                    paths.add(entry.getFileName().toString());
+                }
+            }
+        }
+
+        if (subDirs.size() > 1 && executor != null) {
+            List<Callable<List<String>>> subtrees = new ArrayList<>();
+            for (final Path subDir : subDirs) {
+                subtrees.add(new Callable<List<String>>() {
+                    @Override
+                    public List<String> call() throws IOException {
+                        return walk(dir, subDir);
+                    }
+                });
+            }
+
+            try {
+                for (Future<List<String>> subtree : executor.invokeAll(subtrees)) {
+                    paths.addAll(subtree.get());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while scanning [" + dir + "].");
+            } catch (ExecutionException e) {
+                throw new IOException(e.getCause());
+            }
+        } else {
+            for (Path subDir : subDirs) {
+                paths.addAll(walk(dir, subDir));
+            }
+        }
+        Collections.sort(paths);
+
+        return paths;
+    }
+
+    /**
+     * Lists the files of a sub-directory, following symbolic links.
+     */
+    private static List<String> walk(final Path baseDir, Path subDir) throws IOException {
+        final List<String> paths = new ArrayList<>();
+        Files.walkFileTree(subDir, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE,
+                new SimpleFileVisitor<Path>() {
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                        if (attrs.isRegularFile()) {
+                            paths.add(baseDir.relativize(file).toString());
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFileFailed(Path file, IOException e) {
+                        // Symbolic link loops and unreadable entries are skipped, as by the plexus scanner
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+
+        return paths;
+    }
+}
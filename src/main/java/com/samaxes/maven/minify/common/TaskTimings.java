@@ -0,0 +1,106 @@
+/*
+ * Minify Maven Plugin
+ * https://github.com/samaxes/minify-maven-plugin
+ *
+ * Copyright (c) 2009 samaxes.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.samaxes.maven.minify.common;
+
+import java.io.*;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Durations of the tasks run by a previous build, used to schedule the slowest tasks first. Timings are kept in a
+ * properties file where each key identifies a task and each value is its duration in milliseconds.
+ */
+public class TaskTimings {
+
+    private final File file;
+
+    private final Map<String, Long> timings = new ConcurrentHashMap<>();
+
+    /**
+     * Task timings constructor.
+     *
+     * @param file properties file where the timings are stored
+     */
+    public TaskTimings(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Loads the timings recorded by a previous build, if any.
+     *
+     * @throws IOException when the timings file exists but cannot be read
+     */
+    public void load() throws IOException {
+        if (!file.isFile()) {
+            return;
+        }
+
+        Properties properties = new Properties();
+        try (InputStream in = new FileInputStream(file)) {
+            properties.load(in);
+        }
+        for (String key : properties.stringPropertyNames()) {
+            try {
+                timings.put(key, Long.valueOf(properties.getProperty(key)));
+            } catch (NumberFormatException e) {
+                // Ignore corrupted entries, the task will be timed again
+            }
+        }
+    }
+
+    /**
+     * Stores the timings so that they are available for the next build.
+     *
+     * @throws IOException when the timings file cannot be written
+     */
+    public void store() throws IOException {
+        if (!file.getParentFile().exists() && !file.getParentFile().mkdirs()) {
+            throw new IOException("Unable to create directory for: " + file);
+        }
+
+        Properties properties = new Properties();
+        for (Map.Entry<String, Long> timing : timings.entrySet()) {
+            properties.setProperty(timing.getKey(), String.valueOf(timing.getValue()));
+        }
+        try (OutputStream out = new FileOutputStream(file)) {
+            properties.store(out, "Minify Maven Plugin task timings");
+        }
+    }
+
+    /**
+     * Gets the duration of a task in the previous build.
+     *
+     * @param key the task identifier
+     * @return the duration in milliseconds, or {@code null} if the task was not timed before
+     */
+    public Long get(String key) {
+        return timings.get(key);
+    }
+
+    /**
+     * Records the duration of a task.
+     *
+     * @param key      the task identifier
+     * @param duration the duration in milliseconds
+     */
+    public void put(String key, long duration) {
+        timings.put(key, duration);
+    }
+}
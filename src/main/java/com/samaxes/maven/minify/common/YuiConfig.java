@@ -81,4 +81,15 @@ public class YuiConfig {
     public boolean isDisableOptimizations() {
         return disableOptimizations;
     }
+
+    /**
+     * Describes the options, so that configuration changes can be detected between builds.
+     *
+     * @return the options description
+     */
+    @Override
+    public String toString() {
+        return "YuiConfig{lineBreak=" + lineBreak + ", munge=" + munge + ", preserveSemicolons=" + preserveSemicolons
+                + ", disableOptimizations=" + disableOptimizations + "}";
+    }
 }
@@ -0,0 +1,234 @@
+/*
+ * Minify Maven Plugin
+ * https://github.com/samaxes/minify-maven-plugin
+ *
+ * Copyright (c) 2009 samaxes.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.samaxes.maven.minify.engine;
+
+import com.google.common.io.CharStreams;
+import com.google.javascript.jscomp.*;
+import com.google.javascript.jscomp.Compiler;
+import com.samaxes.maven.minify.common.BuildManifest;
+import com.samaxes.maven.minify.common.ClosureConfig;
+import com.samaxes.maven.minify.common.ClosureExterns;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.*;
+
+/**
+ * <a href="https://developers.google.com/closure/compiler/">Google Closure Compiler</a> engine, for JavaScript files.
+ */
+public class ClosureEngine implements MinifierEngine {
+
+    private static final Set<Capability> CAPABILITIES = Collections.unmodifiableSet(EnumSet.of(Capability.JAVASCRIPT,
+            Capability.SOURCE_MAPS, Capability.MULTIPLE_INPUTS, Capability.CHUNKS, Capability.WHOLE_PROGRAM,
+            Capability.THREAD_SAFE));
+
+    private ClosureConfig closureConfig;
+
+    private Charset charset;
+
+    private String description;
+
+    @Override
+    public String getName() {
+        return "CLOSURE";
+    }
+
+    @Override
+    public Set<Capability> getCapabilities() {
+        return CAPABILITIES;
+    }
+
+    /**
+     * Keeps the configuration and describes it, including the content of the externs.
+     *
+     * @param config the plugin configuration
+     * @throws IOException when an extern file cannot be read
+     */
+    @Override
+    public void init(EngineConfig config) throws IOException {
+        this.closureConfig = config.getClosureConfig();
+        this.charset = config.getCharset();
+
+        StringBuilder description = new StringBuilder(getName()).append("{closureConfig=").append(closureConfig);
+        for (SourceFile extern : closureConfig.getExterns()) {
+            description.append(", ").append(extern.getName()).append('=').append(BuildManifest.digest(extern.getCode()));
+        }
+        this.description = description.append('}').toString();
+    }
+
+    /**
+     * Gets the rough cost of minifying JavaScript files. Advanced optimizations are by far the most expensive.
+     *
+     * @param type {@link Capability#JAVASCRIPT}
+     * @return the minify cost per kilobyte
+     */
+    @Override
+    public double getCostPerKilobyte(Capability type) {
+        if (closureConfig.getCompilationLevel() == CompilationLevel.ADVANCED_OPTIMIZATIONS) {
+            return 3;
+        } else if (closureConfig.getCompilationLevel() == CompilationLevel.WHITESPACE_ONLY) {
+            return 0.3;
+        } else {
+            return 1;
+        }
+    }
+
+    @Override
+    public void minify(MinifyRequest request, Reader input, Writer output) throws IOException {
+        request.getLog().debug("Using Google Closure Compiler engine.");
+
+        CompilerOptions options = new CompilerOptions();
+        closureConfig.getCompilationLevel().setOptionsForCompilationLevel(options);
+        options.setOutputCharset(charset);
+        options.setLanguageIn(closureConfig.getLanguageIn());
+        options.setLanguageOut(closureConfig.getLanguageOut());
+        options.setDependencyOptions(closureConfig.getDependencyOptions());
+        options.setColorizeErrorOutput(closureConfig.getColorizeErrorOutput());
+        options.setAngularPass(closureConfig.getAngularPass());
+        options.setExtraAnnotationNames(closureConfig.getExtraAnnotations());
+        options.setDefineReplacements(closureConfig.getDefineReplacements());
+        // options.setRewritePolyfills(closureConfig.getLanguageIn().isEs6OrHigher());
+
+        if (closureConfig.getSourceMapFormat() != null) {
+            options.setSourceMapFormat(closureConfig.getSourceMapFormat());
+            options.setSourceMapOutputPath(request.getSourceMapFile().getPath());
+            // options.setSourceMapLocationMappings(Lists.newArrayList(new
+            // SourceMap.LocationMapping(sourceDir.getPath() + File.separator, "")));
+        }
+
+        if (closureConfig.getWarningLevels() != null) {
+            for (Map.Entry<DiagnosticGroup, CheckLevel> warningLevel : closureConfig.getWarningLevels().entrySet()) {
+                options.setWarningLevel(warningLevel.getKey(), warningLevel.getValue());
+            }
+        }
+
+        List<SourceFile> externs = new ArrayList<>();
+        externs.addAll(ClosureExterns.getBuiltinExterns(closureConfig.getEnvironment()));
+        externs.addAll(closureConfig.getExterns());
+
+        Compiler compiler = new Compiler();
+        if (!request.getChunks().isEmpty()) {
+            minifyChunks(request.getChunks(), compiler, externs, options);
+            return;
+        }
+
+        List<SourceFile> sources = new ArrayList<>();
+        if (request.getInputs().isEmpty()) {
+            sources.add(SourceFile.fromCode(request.getInputName(), CharStreams.toString(input)));
+        } else {
+            // Each source file is read when Closure parses it, and keeps its own name in errors and source maps
+            for (MinifyInput sourceInput : request.getInputs()) {
+                sources.add(SourceFile.fromGenerator(sourceInput.getName(), new InputGenerator(sourceInput)));
+            }
+        }
+        compiler.compile(externs, sources, options);
+        checkErrors(compiler);
+
+        output.append(compiler.toSource());
+
+        if (closureConfig.getSourceMapFormat() != null) {
+            StringBuilder sourceMap = new StringBuilder();
+            compiler.getSourceMap().appendTo(sourceMap, request.getMinifiedFile().getName());
+            request.setSourceMap(sourceMap.toString());
+        }
+    }
+
+    /**
+     * Compiles chunks as modules of a single compilation. Functions and variables that are only used by the chunks
+     * depending on the chunk declaring them are moved to the first of those chunks.
+     *
+     * @param chunks   the chunks, in dependency order
+     * @param compiler the compiler
+     * @param externs  the externs
+     * @param options  the options of the compilation
+     * @throws IOException when a source map cannot be written
+     */
+    private void minifyChunks(List<MinifyChunk> chunks, Compiler compiler, List<SourceFile> externs,
+                              CompilerOptions options) throws IOException {
+        options.setCrossModuleCodeMotion(true);
+
+        Map<String, JSModule> modules = new LinkedHashMap<>();
+        for (MinifyChunk chunk : chunks) {
+            JSModule module = new JSModule(chunk.getName());
+            for (MinifyInput sourceInput : chunk.getInputs()) {
+                module.add(SourceFile.fromGenerator(sourceInput.getName(), new InputGenerator(sourceInput)));
+            }
+            for (String dependency : chunk.getDependencies()) {
+                module.addDependency(modules.get(dependency));
+            }
+            modules.put(chunk.getName(), module);
+        }
+        compiler.compileModules(externs, new ArrayList<>(modules.values()), options);
+        checkErrors(compiler);
+
+        for (MinifyChunk chunk : chunks) {
+            // Mappings are added to the source map as the code of each module is printed
+            if (closureConfig.getSourceMapFormat() != null) {
+                compiler.getSourceMap().reset();
+            }
+            chunk.setContent(compiler.toSource(modules.get(chunk.getName())));
+
+            if (closureConfig.getSourceMapFormat() != null) {
+                StringBuilder sourceMap = new StringBuilder();
+                compiler.getSourceMap().appendTo(sourceMap, chunk.getMinifiedFile().getName());
+                chunk.setSourceMap(sourceMap.toString());
+            }
+        }
+    }
+
+    private static void checkErrors(Compiler compiler) {
+        JSError[] errors = compiler.getErrors();
+        if (errors.length > 0) {
+            StringBuilder msg = new StringBuilder("JSCompiler errors\n");
+            MessageFormatter formatter = new LightweightMessageFormatter(compiler);
+            for (JSError e : errors) {
+                msg.append(formatter.formatError(e));
+            }
+            throw new RuntimeException(msg.toString());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return description;
+    }
+
+    /**
+     * Reads a source file for Closure, which does not expect its generators to fail.
+     */
+    private static class InputGenerator implements SourceFile.Generator {
+
+        private final MinifyInput input;
+
+        InputGenerator(MinifyInput input) {
+            this.input = input;
+        }
+
+        @Override
+        public String getCode() {
+            try {
+                return input.getContent();
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to read the source file [" + input.getName() + "].", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Minify Maven Plugin
+ * https://github.com/samaxes/minify-maven-plugin
+ *
+ * Copyright (c) 2009 samaxes.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.samaxes.maven.minify.engine;
+
+import com.samaxes.maven.minify.common.ClosureConfig;
+import com.samaxes.maven.minify.common.YuiConfig;
+
+import java.nio.charset.Charset;
+
+/**
+ * Plugin configuration handed to the engines when they are initialized.
+ */
+public class EngineConfig {
+
+    private final Charset charset;
+
+    private final boolean verbose;
+
+    private final YuiConfig yuiConfig;
+
+    private final ClosureConfig closureConfig;
+
+    /**
+     * Init EngineConfig values.
+     *
+     * @param charset       the character set of the source and minified files
+     * @param verbose       display additional info
+     * @param yuiConfig     YUI Compressor configuration
+     * @param closureConfig Google Closure Compiler configuration
+     */
+    public EngineConfig(Charset charset, boolean verbose, YuiConfig yuiConfig, ClosureConfig closureConfig) {
+        this.charset = charset;
+        this.verbose = verbose;
+        this.yuiConfig = yuiConfig;
+        this.closureConfig = closureConfig;
+    }
+
+    /**
+     * Gets the charset.
+     *
+     * @return the charset
+     */
+    public Charset getCharset() {
+        return charset;
+    }
+
+    /**
+     * Gets the verbose.
+     *
+     * @return the verbose
+     */
+    public boolean isVerbose() {
+        return verbose;
+    }
+
+    /**
+     * Gets the yuiConfig.
+     *
+     * @return the yuiConfig
+     */
+    public YuiConfig getYuiConfig() {
+        return yuiConfig;
+    }
+
+    /**
+     * Gets the closureConfig.
+     *
+     * @return the closureConfig
+     */
+    public ClosureConfig getClosureConfig() {
+        return closureConfig;
+    }
+}
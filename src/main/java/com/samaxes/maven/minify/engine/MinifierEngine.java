@@ -0,0 +1,126 @@
+/*
+ * Minify Maven Plugin
+ * https://github.com/samaxes/minify-maven-plugin
+ *
+ * Copyright (c) 2009 samaxes.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.samaxes.maven.minify.engine;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Set;
+
+/**
+ * Engine used for minification.<br/>
+ * Engines are discovered with {@link java.util.ServiceLoader}: an engine shipped in a separate artifact lists its
+ * implementation in {@code META-INF/services/com.samaxes.maven.minify.engine.MinifierEngine} and is selected by name
+ * once the artifact is added to the dependencies of the plugin. A single instance of each engine is created per plugin
+ * execution and reused by all the bundles.
+ */
+public interface MinifierEngine {
+
+    /**
+     * Features supported by an engine.
+     */
+    enum Capability {
+        /**
+         * Minifies JavaScript files.
+         */
+        JAVASCRIPT,
+        /**
+         * Minifies CSS files.
+         */
+        CSS,
+        /**
+         * Reads its input as it goes, instead of needing the whole content at once. The input is then decoded on the
+         * fly rather than copied to a string first.
+         */
+        STREAMING,
+        /**
+         * Creates source maps.
+         */
+        SOURCE_MAPS,
+        /**
+         * Reads each source file of a bundle on its own, from {@link MinifyRequest#getInputs()}, so that the files do
+         * not need to be merged first.
+         */
+        MULTIPLE_INPUTS,
+        /**
+         * Compiles several bundles at once, as chunks that depend on each other, from
+         * {@link MinifyRequest#getChunks()}.
+         */
+        CHUNKS,
+        /**
+         * Optimizes the source files of a bundle as a whole, e.g. renaming or removing symbols that one file declares
+         * and another uses. The files of a bundle are then always minified together, none of them being copied as is.
+         */
+        WHOLE_PROGRAM,
+        /**
+         * Can minify several files concurrently. Calls to engines without this capability are serialized.
+         */
+        THREAD_SAFE
+    }
+
+    /**
+     * Gets the name used to select the engine, e.g. in the {@code jsEngine} parameter.
+     *
+     * @return the engine name
+     */
+    String getName();
+
+    /**
+     * Gets the features supported by the engine.
+     *
+     * @return the engine capabilities
+     */
+    Set<Capability> getCapabilities();
+
+    /**
+     * Initializes the engine, once per plugin execution and before any file is minified.
+     *
+     * @param config the plugin configuration
+     * @throws IOException when a file the configuration refers to cannot be read
+     */
+    void init(EngineConfig config) throws IOException;
+
+    /**
+     * Gets the rough cost, in milliseconds per kilobyte of input, of minifying files of the given type. Used to start
+     * the most expensive bundles first.
+     *
+     * @param type {@link Capability#JAVASCRIPT} or {@link Capability#CSS}
+     * @return the minify cost per kilobyte
+     */
+    double getCostPerKilobyte(Capability type);
+
+    /**
+     * Minifies a file.
+     *
+     * @param request the file to minify, which the engine can attach a source map to
+     * @param input   the content of the file, empty when the request lists its source files
+     * @param output  where to write the minified content, unused when the request lists chunks
+     * @throws IOException when the minification fails
+     */
+    void minify(MinifyRequest request, Reader input, Writer output) throws IOException;
+
+    /**
+     * Describes the engine, its version and the options that affect its output. Files are minified again when the
+     * description changes between builds.
+     *
+     * @return the engine description
+     */
+    @Override
+    String toString();
+}
@@ -0,0 +1,86 @@
+/*
+ * Minify Maven Plugin
+ * https://github.com/samaxes/minify-maven-plugin
+ *
+ * Copyright (c) 2009 samaxes.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.samaxes.maven.minify.engine;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * The engines available to a plugin execution, discovered with {@link ServiceLoader}. Each engine is initialized the
+ * first time it is selected, then reused.
+ */
+public class MinifierEngines {
+
+    private final EngineConfig config;
+
+    private final Map<String, MinifierEngine> engines = new LinkedHashMap<>();
+
+    private final Set<MinifierEngine> initializedEngines = new HashSet<>();
+
+    /**
+     * Loads the engines.
+     *
+     * @param classLoader the class loader the engines are looked up in, which must see the plugin dependencies
+     * @param config      the plugin configuration handed to the engines
+     */
+    public MinifierEngines(ClassLoader classLoader, EngineConfig config) {
+        this.config = config;
+        for (MinifierEngine engine : ServiceLoader.load(MinifierEngine.class, classLoader)) {
+            // The first engine found wins, so that an engine cannot be replaced by accident
+            if (!engines.containsKey(engine.getName())) {
+                engines.put(engine.getName(), engine);
+            }
+        }
+    }
+
+    /**
+     * Gets an engine by name.
+     *
+     * @param name the engine name
+     * @param type {@link MinifierEngine.Capability#JAVASCRIPT} or {@link MinifierEngine.Capability#CSS}
+     * @return the initialized engine
+     * @throws IllegalArgumentException when there is no such engine or it does not support the given file type
+     * @throws IOException              when the engine fails to initialize
+     */
+    public synchronized MinifierEngine get(String name, MinifierEngine.Capability type) throws IOException {
+        MinifierEngine engine = engines.get(name);
+        if (engine == null || !engine.getCapabilities().contains(type)) {
+            Set<String> names = new TreeSet<>();
+            for (MinifierEngine candidate : engines.values()) {
+                if (candidate.getCapabilities().contains(type)) {
+                    names.add(candidate.getName());
+                }
+            }
+            throw new IllegalArgumentException("Unsupported " + (type == MinifierEngine.Capability.CSS ? "CSS"
+                    : "JavaScript") + " engine [" + name + "], available engines are " + names + ".");
+        }
+
+        if (!initializedEngines.contains(engine)) {
+            engine.init(config);
+            initializedEngines.add(engine);
+        }
+
+        return engine;
+    }
+}
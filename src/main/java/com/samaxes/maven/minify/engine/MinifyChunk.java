@@ -0,0 +1,128 @@
+/*
+ * Minify Maven Plugin
+ * https://github.com/samaxes/minify-maven-plugin
+ *
+ * Copyright (c) 2009 samaxes.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.samaxes.maven.minify.engine;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * A bundle compiled together with other bundles by an engine with the {@link MinifierEngine.Capability#CHUNKS}
+ * capability. Code used by a single chunk can be moved to it from the chunks it depends on, which are loaded first.
+ */
+public class MinifyChunk {
+
+    private final String name;
+
+    private final List<MinifyInput> inputs;
+
+    private final List<String> dependencies;
+
+    private final File minifiedFile;
+
+    private String content;
+
+    private String sourceMap;
+
+    /**
+     * Init MinifyChunk values.
+     *
+     * @param name         name of the bundle
+     * @param inputs       source files of the bundle, in merge order
+     * @param dependencies names of the chunks this chunk depends on, which come before it in the request
+     * @param minifiedFile the file the minified content of the chunk is written to
+     */
+    public MinifyChunk(String name, List<MinifyInput> inputs, List<String> dependencies, File minifiedFile) {
+        this.name = name;
+        this.inputs = inputs;
+        this.dependencies = dependencies;
+        this.minifiedFile = minifiedFile;
+    }
+
+    /**
+     * Gets the name.
+     *
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the inputs.
+     *
+     * @return the inputs
+     */
+    public List<MinifyInput> getInputs() {
+        return inputs;
+    }
+
+    /**
+     * Gets the dependencies.
+     *
+     * @return the dependencies
+     */
+    public List<String> getDependencies() {
+        return dependencies;
+    }
+
+    /**
+     * Gets the minifiedFile.
+     *
+     * @return the minifiedFile
+     */
+    public File getMinifiedFile() {
+        return minifiedFile;
+    }
+
+    /**
+     * Gets the content.
+     *
+     * @return the minified content, or {@code null} if the chunk has not been compiled
+     */
+    public String getContent() {
+        return content;
+    }
+
+    /**
+     * Sets the minified content of the chunk.
+     *
+     * @param content the minified content
+     */
+    public void setContent(String content) {
+        this.content = content;
+    }
+
+    /**
+     * Gets the sourceMap.
+     *
+     * @return the sourceMap, or {@code null} if the engine did not create one
+     */
+    public String getSourceMap() {
+        return sourceMap;
+    }
+
+    /**
+     * Sets the source map of the chunk. It is written next to the minified file of the chunk, which then refers to it.
+     *
+     * @param sourceMap the source map content
+     */
+    public void setSourceMap(String sourceMap) {
+        this.sourceMap = sourceMap;
+    }
+}
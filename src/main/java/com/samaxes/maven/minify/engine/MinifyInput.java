@@ -0,0 +1,43 @@
+/*
+ * Minify Maven Plugin
+ * https://github.com/samaxes/minify-maven-plugin
+ *
+ * Copyright (c) 2009 samaxes.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.samaxes.maven.minify.engine;
+
+import java.io.IOException;
+
+/**
+ * A source file handed on its own to an engine with the {@link MinifierEngine.Capability#MULTIPLE_INPUTS}
+ * capability. Its content is only read when the engine asks for it.
+ */
+public interface MinifyInput {
+
+    /**
+     * Gets the name of the source file, used in error messages and source maps.
+     *
+     * @return the path of the source file, relative to its source directory
+     */
+    String getName();
+
+    /**
+     * Reads the content of the source file.
+     *
+     * @return the decoded content
+     * @throws IOException when the source file cannot be read
+     */
+    String getContent() throws IOException;
+}
@@ -0,0 +1,161 @@
+/*
+ * Minify Maven Plugin
+ * https://github.com/samaxes/minify-maven-plugin
+ *
+ * Copyright (c) 2009 samaxes.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.samaxes.maven.minify.engine;
+
+import org.apache.maven.plugin.logging.Log;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A file to minify, as seen by an engine.
+ */
+public class MinifyRequest {
+
+    private final MinifierEngine.Capability type;
+
+    private final Log log;
+
+    private final String inputName;
+
+    private final File minifiedFile;
+
+    private List<MinifyInput> inputs = Collections.emptyList();
+
+    private List<MinifyChunk> chunks = Collections.emptyList();
+
+    private String sourceMap;
+
+    /**
+     * Init MinifyRequest values.
+     *
+     * @param type         {@link MinifierEngine.Capability#JAVASCRIPT} or {@link MinifierEngine.Capability#CSS}
+     * @param log          log used for the messages of this file
+     * @param inputName    name of the file to minify, used in error messages and source maps
+     * @param minifiedFile the file the minified content is written to
+     */
+    public MinifyRequest(MinifierEngine.Capability type, Log log, String inputName, File minifiedFile) {
+        this.type = type;
+        this.log = log;
+        this.inputName = inputName;
+        this.minifiedFile = minifiedFile;
+    }
+
+    /**
+     * Gets the type of the file.
+     *
+     * @return {@link MinifierEngine.Capability#JAVASCRIPT} or {@link MinifierEngine.Capability#CSS}
+     */
+    public MinifierEngine.Capability getType() {
+        return type;
+    }
+
+    /**
+     * Gets the log.
+     *
+     * @return the log
+     */
+    public Log getLog() {
+        return log;
+    }
+
+    /**
+     * Gets the inputName.
+     *
+     * @return the inputName
+     */
+    public String getInputName() {
+        return inputName;
+    }
+
+    /**
+     * Gets the minifiedFile.
+     *
+     * @return the minifiedFile
+     */
+    public File getMinifiedFile() {
+        return minifiedFile;
+    }
+
+    /**
+     * Gets the source files, when they are handed one by one to an engine with the
+     * {@link MinifierEngine.Capability#MULTIPLE_INPUTS} capability instead of being merged.
+     *
+     * @return the source files, or an empty list if the content is read from the input of the engine
+     */
+    public List<MinifyInput> getInputs() {
+        return inputs;
+    }
+
+    /**
+     * Sets the source files. The input of the engine is then empty.
+     *
+     * @param inputs the source files, in merge order
+     */
+    public void setInputs(List<MinifyInput> inputs) {
+        this.inputs = inputs;
+    }
+
+    /**
+     * Gets the chunks, when several bundles are compiled at once by an engine with the
+     * {@link MinifierEngine.Capability#CHUNKS} capability.
+     *
+     * @return the chunks, in dependency order, or an empty list if a single bundle is minified
+     */
+    public List<MinifyChunk> getChunks() {
+        return chunks;
+    }
+
+    /**
+     * Sets the chunks. The engine then sets the content of each chunk instead of writing to its output.
+     *
+     * @param chunks the chunks, each one after the chunks it depends on
+     */
+    public void setChunks(List<MinifyChunk> chunks) {
+        this.chunks = chunks;
+    }
+
+    /**
+     * Gets the file the source map of the minified file is written to.
+     *
+     * @return the minified file with the {@code .map} extension appended
+     */
+    public File getSourceMapFile() {
+        return new File(minifiedFile.getPath() + ".map");
+    }
+
+    /**
+     * Gets the sourceMap.
+     *
+     * @return the sourceMap, or {@code null} if the engine did not create one
+     */
+    public String getSourceMap() {
+        return sourceMap;
+    }
+
+    /**
+     * Sets the source map of the minified file. It is written next to the minified file, which then refers to it.
+     *
+     * @param sourceMap the source map content
+     */
+    public void setSourceMap(String sourceMap) {
+        this.sourceMap = sourceMap;
+    }
+}
@@ -0,0 +1,1056 @@
+/*
+ * Minify Maven Plugin
+ * https://github.com/samaxes/minify-maven-plugin
+ *
+ * Copyright (c) 2009 samaxes.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.samaxes.maven.minify.engine;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * Minifies a CSS file in a single pass, with the optimizations of the YUI Compressor {@code CssCompressor}: comments
+ * and whitespace are removed, colors, zeros and units are shortened and empty rules are dropped.<br/>
+ * Only the selector or declaration being read is held in memory, along with the selectors of the enclosing rules that
+ * have no content yet. The output differs from YUI Compressor where the latter breaks the style sheet: spaces are kept
+ * inside {@code calc()}, time units and percentages in functions or keyframe selectors are kept, numbers such as
+ * {@code 1.0px} keep their unit and quoted data URIs are left untouched.
+ */
+final class StreamingCssMinifier {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * Selectors and at-rules, at the top level or in a block of rules.
+     */
+    private static final int PRELUDE = 0;
+
+    /**
+     * Property name in a block of declarations.
+     */
+    private static final int PROPERTY = 1;
+
+    /**
+     * Property value in a block of declarations.
+     */
+    private static final int VALUE = 2;
+
+    private static final String[] AT_RULES = {"charset", "font-face", "import", "keyframes", "-atsc-keyframes",
+            "-khtml-keyframes", "-moz-keyframes", "-ms-keyframes", "-o-keyframes", "-wap-keyframes",
+            "-webkit-keyframes", "media", "page", "namespace"};
+
+    private static final String[] RULE_BLOCKS = {"media", "supports", "document", "-moz-document", "layer",
+            "container"};
+
+    private static final String[] KEYFRAMES = Arrays.copyOfRange(AT_RULES, 3, 11);
+
+    private static final String[] CHARSET = {"charset"};
+
+    private static final String[] PSEUDO_CLASSES = {"active", "after", "before", "checked", "disabled", "empty",
+            "enabled", "first-child", "first-of-type", "focus", "hover", "last-child", "last-of-type", "link",
+            "only-child", "only-of-type", "root", "target", "visited"};
+
+    private static final String[] PSEUDO_FUNCTIONS = {"lang", "not", "nth-child", "nth-last-child",
+            "nth-last-of-type", "nth-of-type", "any", "-moz-any", "-webkit-any"};
+
+    private static final String[] FUNCTIONS = {"attr", "color-stop", "from", "rgba", "to", "url", "calc", "max",
+            "min", "linear-gradient", "radial-gradient", "repeating-linear-gradient", "repeating-radial-gradient",
+            "-webkit-gradient"};
+
+    private static final String[] MATH_FUNCTIONS = {"calc", "min", "max", "clamp"};
+
+    private static final String[] VENDOR_PREFIXES = {"-atsc-", "-khtml-", "-moz-", "-ms-", "-o-", "-wap-",
+            "-webkit-"};
+
+    private static final String[] ZERO_UNITS = {"px", "em", "%", "in", "cm", "mm", "pc", "pt", "ex", "deg", "rad",
+            "grad"};
+
+    private static final String[] NONE_PROPERTIES = {"border", "border-top", "border-right", "border-bottom",
+            "border-left", "outline", "background"};
+
+    private static final String[] POSITION_PROPERTIES = {"background-position", "webkit-mask-position",
+            "transform-origin"};
+
+    private static final String[][] COLOR_NAMES = {{"#f00", "red"}, {"#000080", "navy"}, {"#808080", "gray"},
+            {"#808000", "olive"}, {"#800080", "purple"}, {"#c0c0c0", "silver"}, {"#008080", "teal"},
+            {"#ffa500", "orange"}, {"#800000", "maroon"}};
+
+    private static final String ALPHA_FILTER = "progid:dximagetransform.microsoft.alpha(opacity=";
+
+    private final Reader in;
+
+    private final Writer out;
+
+    private final int lineBreak;
+
+    private final char[] inBuffer = new char[BUFFER_SIZE];
+
+    private int inPosition;
+
+    private int inLimit;
+
+    private final char[] outBuffer = new char[BUFFER_SIZE];
+
+    private int outPosition;
+
+    private char lastWritten;
+
+    private boolean written;
+
+    private int lineLength;
+
+    private boolean pendingNewline;
+
+    /**
+     * The selector or declaration being read, whitespace already collapsed.
+     */
+    private final StringBuilder segment = new StringBuilder();
+
+    private final StringBuilder scratch = new StringBuilder();
+
+    /**
+     * Selectors of the enclosing rules that have no content yet, each followed by its opening brace.
+     */
+    private final StringBuilder pending = new StringBuilder();
+
+    /**
+     * Preserved comments at the start of the file, held until the first rule in case a {@code @charset} follows them.
+     */
+    private final StringBuilder leadingComments = new StringBuilder();
+
+    private boolean spaceAfterCharset;
+
+    private int[] pendingStarts = new int[16];
+
+    private boolean[] droppable = new boolean[16];
+
+    private boolean[] ruleBlocks = new boolean[16];
+
+    private int depth;
+
+    /**
+     * Index of the first enclosing rule whose selector is still pending.
+     */
+    private int pendingFrom;
+
+    private int state = PRELUDE;
+
+    private int colon = -1;
+
+    private int parenDepth;
+
+    private int mathDepth;
+
+    private boolean mathFunction;
+
+    private boolean pendingSpace;
+
+    private boolean pendingSemicolon;
+
+    private boolean emptyNextComment;
+
+    private boolean commentEnd;
+
+    /**
+     * Init StreamingCssMinifier values.
+     *
+     * @param in        the CSS to minify
+     * @param out       where to write the minified CSS
+     * @param lineBreak the column after which a line break is inserted after a rule, {@code -1} for no line breaks
+     */
+    StreamingCssMinifier(Reader in, Writer out, int lineBreak) {
+        this.in = in;
+        this.out = out;
+        this.lineBreak = lineBreak;
+    }
+
+    /**
+     * Minifies the whole input.
+     *
+     * @throws IOException when the input cannot be read or the output written
+     */
+    void minify() throws IOException {
+        int c = read();
+        while (c != -1) {
+            if (isWhitespace(c)) {
+                pendingSpace = true;
+                c = read();
+            } else if (c == '/' && peek() == '*') {
+                read();
+                c = comment();
+            } else if (c == '"' || c == '\'') {
+                c = string(c);
+            } else if (c == '{') {
+                openBlock();
+                c = read();
+            } else if (c == '}') {
+                closeBlock();
+                c = read();
+            } else if (c == ';') {
+                pendingSpace = false;
+                endSegment(true);
+                c = read();
+            } else if (isDelimiter(c)) {
+                delimiter((char) c);
+                c = read();
+            } else {
+                c = word(c);
+            }
+        }
+
+        endSegment(false);
+        flushPending();
+        writeLeadingComments();
+        flush();
+    }
+
+    private int read() throws IOException {
+        if (inPosition == inLimit) {
+            inLimit = in.read(inBuffer, 0, BUFFER_SIZE);
+            inPosition = 0;
+            if (inLimit <= 0) {
+                inLimit = 0;
+                return -1;
+            }
+        }
+        return inBuffer[inPosition++];
+    }
+
+    private int peek() throws IOException {
+        int c = read();
+        if (c != -1) {
+            inPosition--;
+        }
+        return c;
+    }
+
+    /* ********* */
+    /* Tokenizer */
+    /* ********* */
+
+    private int comment() throws IOException {
+        scratch.setLength(0);
+        int c = read();
+        while (c != -1 && !(c == '*' && peek() == '/')) {
+            scratch.append((char) c);
+            c = read();
+        }
+        if (c != -1) {
+            read();
+        }
+
+        if (emptyNextComment) {
+            // Second half of the IE5/Mac hack
+            emptyNextComment = false;
+            emitComment("");
+        } else if (scratch.length() > 0 && scratch.charAt(0) == '!') {
+            emitComment(scratch);
+        } else if (scratch.length() > 0 && scratch.charAt(scratch.length() - 1) == '\\') {
+            // IE5/Mac hack, the next comment is kept as well
+            emptyNextComment = true;
+            emitComment("\\");
+        } else if (scratch.length() == 0 && !pendingSpace && lastChar() == '>') {
+            // IE7 child selector hack, html>/**/body
+            emitComment("");
+        }
+        return read();
+    }
+
+    private void emitComment(CharSequence content) throws IOException {
+        space('/');
+        if (segment.length() == 0 && !written && pending.length() == 0) {
+            leadingComments.append("/*").append(content).append("*/");
+        } else if (segment.length() == 0) {
+            flushPending();
+            if (pendingSemicolon) {
+                write(';');
+                pendingSemicolon = false;
+            }
+            write("/*");
+            write(content, 0, content.length());
+            write("*/");
+        } else {
+            segment.append("/*").append(content).append("*/");
+        }
+        commentEnd = true;
+    }
+
+    private int string(int quote) throws IOException {
+        space(quote);
+        segment.append((char) quote);
+        int c = read();
+        while (c != -1) {
+            segment.append((char) c);
+            if (c == '\\') {
+                c = read();
+                if (c == -1) {
+                    break;
+                }
+                segment.append((char) c);
+            } else if (c == quote) {
+                break;
+            }
+            c = read();
+        }
+        return read();
+    }
+
+    private int word(int first) throws IOException {
+        space(first);
+        int start = segment.length();
+        int c = first;
+        do {
+            segment.append((char) c);
+            if (c == '\\') {
+                c = read();
+                if (c == -1) {
+                    return c;
+                }
+                segment.append((char) c);
+            }
+            c = read();
+        } while (c != -1 && !isWhitespace(c) && !isDelimiter(c) && c != '{' && c != '}' && c != ';' && c != '"'
+                && c != '\'' && !(c == '/' && peek() == '*'));
+
+        int end = segment.length();
+        if (c == '(') {
+            if (equalsIgnoreCase(segment, start, end, "url")) {
+                lowerCase(segment, start, end);
+                return url();
+            }
+            mathFunction = indexOfIgnoringPrefix(segment, start, end, MATH_FUNCTIONS) >= 0;
+        }
+        if (state == PRELUDE) {
+            char previous = start > 0 ? segment.charAt(start - 1) : 0;
+            if (first == '@' && indexOf(segment, start + 1, end, AT_RULES) >= 0) {
+                lowerCase(segment, start, end);
+            } else if (previous == ':' && (indexOf(segment, start, end, PSEUDO_CLASSES) >= 0
+                    || c == '(' && indexOf(segment, start, end, PSEUDO_FUNCTIONS) >= 0
+                    || start > 1 && segment.charAt(start - 2) == ':'
+                    && equalsIgnoreCase(segment, start, end, "selection"))) {
+                lowerCase(segment, start, end);
+            }
+        }
+        return c;
+    }
+
+    private int url() throws IOException {
+        segment.append('(');
+        int c = read();
+        while (isWhitespace(c)) {
+            c = read();
+        }
+        if (c == '"' || c == '\'') {
+            parenDepth++;
+            return c;
+        }
+
+        int start = segment.length();
+        boolean space = false;
+        while (c != -1 && c != ')') {
+            if (isWhitespace(c)) {
+                space = true;
+            } else {
+                if (space) {
+                    segment.append(' ');
+                    space = false;
+                }
+                segment.append((char) c);
+                if (c == '\\') {
+                    c = read();
+                    if (c == -1) {
+                        break;
+                    }
+                    segment.append((char) c);
+                }
+            }
+            c = read();
+        }
+        if (segment.length() - start >= 5 && equalsIgnoreCase(segment, start, start + 5, "data:")) {
+            // Whitespace is not allowed in a data URI
+            int to = start;
+            for (int from = start; from < segment.length(); from++) {
+                if (segment.charAt(from) != ' ') {
+                    segment.setCharAt(to++, segment.charAt(from));
+                }
+            }
+            segment.setLength(to);
+        }
+        if (c == -1) {
+            return c;
+        }
+        segment.append(')');
+        return read();
+    }
+
+    private void delimiter(char c) {
+        if (c == '(' && state == PRELUDE && endsWithWord(segment, "and")) {
+            // Media queries need a space between "and" and the feature
+            lowerCase(segment, segment.length() - 3, segment.length());
+            pendingSpace = true;
+        }
+        if (c == ',' || c == '{') {
+            firstLineSpace();
+        }
+        space(c);
+        if (c == ':' && state == PROPERTY && parenDepth == 0) {
+            colon = segment.length();
+            state = VALUE;
+        } else if (c == '(') {
+            parenDepth++;
+            if (mathFunction && mathDepth == 0) {
+                mathDepth = parenDepth;
+            }
+        } else if (c == ')' && parenDepth > 0) {
+            if (mathDepth == parenDepth) {
+                mathDepth = 0;
+            }
+            parenDepth--;
+        }
+        mathFunction = false;
+        segment.append(c);
+    }
+
+    /**
+     * Decides whether the whitespace read before a token is kept.
+     *
+     * @param next the first character of the token
+     */
+    private void space(int next) {
+        boolean afterComment = commentEnd;
+        commentEnd = false;
+        boolean afterCharset = spaceAfterCharset;
+        spaceAfterCharset = false;
+        if (pendingSpace) {
+            pendingSpace = false;
+            if (afterCharset) {
+                leadingComments.append(' ');
+            }
+            int previous = lastChar();
+            if (previous != 0 && !afterComment && !dropsSpaceAfter(previous) && !dropsSpaceBefore(next)) {
+                segment.append(' ');
+            }
+        }
+    }
+
+    private boolean dropsSpaceAfter(int c) {
+        switch (c) {
+            case '!':
+            case '{':
+            case '}':
+            case ':':
+            case ';':
+            case '>':
+            case '(':
+            case '[':
+            case ',':
+                return true;
+            case '+':
+                return mathDepth == 0;
+            default:
+                return false;
+        }
+    }
+
+    private boolean dropsSpaceBefore(int c) {
+        switch (c) {
+            case '!':
+            case '{':
+            case '}':
+            case ';':
+            case '>':
+            case ')':
+            case ']':
+            case ',':
+                return true;
+            case ':':
+                // Descendant pseudo-class selectors, e.g. "a :hover"
+                return state != PRELUDE;
+            case '+':
+                return mathDepth == 0;
+            case '(':
+                return state != PRELUDE || !(endsWithWord(segment, "and") || endsWithWord(segment, "or")
+                        || endsWithWord(segment, "not"));
+            default:
+                return false;
+        }
+    }
+
+    private int lastChar() {
+        if (segment.length() > 0) {
+            return segment.charAt(segment.length() - 1);
+        } else if (pendingSemicolon) {
+            return ';';
+        } else if (pending.length() > 0) {
+            return pending.charAt(pending.length() - 1);
+        } else {
+            return written ? lastWritten : 0;
+        }
+    }
+
+    /**
+     * Keeps a space after {@code :first-line} and {@code :first-letter}, which IE6 needs.
+     */
+    private void firstLineSpace() {
+        if (state == PRELUDE && (endsWithIgnoreCase(segment, ":first-line")
+                || endsWithIgnoreCase(segment, ":first-letter"))) {
+            segment.append(' ');
+            pendingSpace = false;
+        }
+    }
+
+    /* ****** */
+    /* Blocks */
+    /* ****** */
+
+    private void openBlock() throws IOException {
+        firstLineSpace();
+        pendingSpace = false;
+        if (pendingSemicolon) {
+            pending.append(';');
+            pendingSemicolon = false;
+        }
+
+        if (depth == pendingStarts.length) {
+            pendingStarts = Arrays.copyOf(pendingStarts, depth * 2);
+            droppable = Arrays.copyOf(droppable, depth * 2);
+            ruleBlocks = Arrays.copyOf(ruleBlocks, depth * 2);
+        }
+        pendingStarts[depth] = pending.length();
+        droppable[depth] = segment.length() > 0 && segment.indexOf("/*") < 0;
+        ruleBlocks[depth] = isAtRule(segment, RULE_BLOCKS) || isAtRule(segment, KEYFRAMES);
+        pending.append(segment).append('{');
+        depth++;
+        resetSegment();
+    }
+
+    private void closeBlock() throws IOException {
+        pendingSpace = false;
+        endSegment(false);
+        pendingSemicolon = false;
+        if (depth == 0) {
+            flushPending();
+            writeCloseBrace();
+            return;
+        }
+
+        depth--;
+        if (depth >= pendingFrom) {
+            if (droppable[depth]) {
+                pending.setLength(pendingStarts[depth]);
+                // Whitespace after a comment followed by an empty rule is dropped, as if the rule was not there
+                commentEnd = pending.length() == 0 && written && lastWritten == '/';
+            } else {
+                flushPending();
+                writeCloseBrace();
+            }
+        } else {
+            writeCloseBrace();
+        }
+        if (pendingFrom > depth) {
+            pendingFrom = depth;
+        }
+        resetSegment();
+    }
+
+    private void resetSegment() {
+        segment.setLength(0);
+        state = depth == 0 || ruleBlocks[depth - 1] ? PRELUDE : PROPERTY;
+        colon = -1;
+        parenDepth = 0;
+        mathDepth = 0;
+        mathFunction = false;
+    }
+
+    /**
+     * Writes the selector or declaration that was read.
+     *
+     * @param semicolon whether it ends with a semicolon
+     * @throws IOException when the output cannot be written
+     */
+    private void endSegment(boolean semicolon) throws IOException {
+        if (segment.length() == 0) {
+            return;
+        }
+
+        if (state == PRELUDE) {
+            if (isAtRule(segment, CHARSET) && (written || pending.length() > 0)) {
+                // Only the first @charset is valid
+                resetSegment();
+                return;
+            } else if (isAtRule(segment, CHARSET)) {
+                // Moved before the comments at the start of the file, as YUI Compressor does
+                String comments = leadingComments.toString();
+                leadingComments.setLength(0);
+                write(segment, 0, segment.length());
+                write(';');
+                leadingComments.append(comments);
+                // The whitespace after the @charset stays after the comments
+                spaceAfterCharset = comments.length() > 0;
+                resetSegment();
+                return;
+            }
+            flushPending();
+            write(segment, 0, segment.length());
+            if (semicolon) {
+                write(';');
+            }
+        } else {
+            flushPending();
+            if (pendingSemicolon) {
+                write(';');
+            }
+            if (colon < 0) {
+                write(segment, 0, segment.length());
+            } else {
+                write(segment, 0, colon + 1);
+                value(colon + 1);
+                write(scratch, 0, scratch.length());
+            }
+            pendingSemicolon = semicolon;
+        }
+        resetSegment();
+    }
+
+    private void flushPending() throws IOException {
+        if (pending.length() > 0) {
+            write(pending, 0, pending.length());
+            pending.setLength(0);
+        }
+        pendingFrom = depth;
+    }
+
+    /* ****** */
+    /* Values */
+    /* ****** */
+
+    /**
+     * Shortens the value of the current declaration into {@code scratch}.
+     *
+     * @param start index of the value in the segment
+     */
+    private void value(int start) {
+        StringBuilder s = segment;
+        int end = s.length();
+        scratch.setLength(0);
+        int parens = 0;
+        int i = start;
+        while (i < end) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\'') {
+                i = copyString(s, i, end);
+            } else if (c == '/' && i + 1 < end && s.charAt(i + 1) == '*') {
+                int close = s.indexOf("*/", i + 2);
+                int from = i;
+                i = close < 0 ? end : close + 2;
+                scratch.append(s, from, i);
+            } else if (c == '#') {
+                i = color(s, i, end);
+            } else if (isDigit(c) || c == '.' && i + 1 < end && isDigit(s.charAt(i + 1))) {
+                i = number(s, i, end, parens);
+            } else if (c == '-' && i + 1 < end && (isDigit(s.charAt(i + 1))
+                    || s.charAt(i + 1) == '.' && i + 2 < end && isDigit(s.charAt(i + 2)))) {
+                scratch.append(c);
+                i = number(s, i + 1, end, parens);
+            } else if (isNameChar(c)) {
+                i = name(s, i, end);
+            } else if (c == '!' && i + 10 <= end && equals(s, i + 1, i + 10, "important")) {
+                scratch.append(" !important");
+                i += 10;
+            } else {
+                if (c == '(') {
+                    parens++;
+                } else if (c == ')' && parens > 0) {
+                    parens--;
+                }
+                scratch.append(c);
+                i++;
+            }
+        }
+
+        if (equals(scratch, "0 0 0 0") || equals(scratch, "0 0 0") || equals(scratch, "0 0")) {
+            scratch.setLength(1);
+        }
+        if (equals(scratch, "0") && endsWithIgnoreCase(s, 0, start - 1, POSITION_PROPERTIES)) {
+            scratch.append(" 0");
+        } else if (equalsIgnoreCase(scratch, 0, scratch.length(), "none")
+                && endsWithIgnoreCase(s, 0, start - 1, NONE_PROPERTIES)) {
+            scratch.setLength(0);
+            scratch.append('0');
+        }
+        int last = scratch.lastIndexOf(" ") + 1;
+        for (String[] color : COLOR_NAMES) {
+            if (scratch.length() - last == color[0].length() && scratch.indexOf(color[0], last) == last) {
+                scratch.replace(last, scratch.length(), color[1]);
+                break;
+            }
+        }
+        int alpha = indexOfIgnoreCase(scratch, 0, ALPHA_FILTER);
+        while (alpha >= 0) {
+            scratch.replace(alpha, alpha + ALPHA_FILTER.length(), "alpha(opacity=");
+            alpha = indexOfIgnoreCase(scratch, alpha + 1, ALPHA_FILTER);
+        }
+    }
+
+    private int copyString(StringBuilder s, int i, int end) {
+        char quote = s.charAt(i);
+        int j = i + 1;
+        while (j < end) {
+            char c = s.charAt(j++);
+            if (c == '\\') {
+                j++;
+            } else if (c == quote) {
+                break;
+            }
+        }
+        j = Math.min(j, end);
+        scratch.append(s, i, j);
+        // The alpha filter is shortened in quoted -ms-filter values too
+        return j;
+    }
+
+    private int color(StringBuilder s, int i, int end) {
+        int j = i + 1;
+        while (j < end && isHexDigit(s.charAt(j))) {
+            j++;
+        }
+        if (j - i == 7 && (j == end || !isNameChar(s.charAt(j))) && !afterEquals()) {
+            appendHexColor(s, i + 1);
+        } else {
+            while (j < end && isNameChar(s.charAt(j))) {
+                j++;
+            }
+            scratch.append(s, i, j);
+        }
+        return j;
+    }
+
+    /**
+     * Appends a six digits color, in lower case and shortened to three digits when possible.
+     */
+    private void appendHexColor(CharSequence hex, int start) {
+        scratch.append('#');
+        if (Character.toLowerCase(hex.charAt(start)) == Character.toLowerCase(hex.charAt(start + 1))
+                && Character.toLowerCase(hex.charAt(start + 2)) == Character.toLowerCase(hex.charAt(start + 3))
+                && Character.toLowerCase(hex.charAt(start + 4)) == Character.toLowerCase(hex.charAt(start + 5))) {
+            for (int k = start; k < start + 6; k += 2) {
+                scratch.append(Character.toLowerCase(hex.charAt(k)));
+            }
+        } else {
+            for (int k = start; k < start + 6; k++) {
+                scratch.append(Character.toLowerCase(hex.charAt(k)));
+            }
+        }
+    }
+
+    /**
+     * Checks whether the value written so far ends with an assignment, as in IE filters, whose colors must be kept as
+     * is.
+     */
+    private boolean afterEquals() {
+        int k = scratch.length() - 1;
+        if (k >= 0 && (scratch.charAt(k) == '"' || scratch.charAt(k) == '\'')) {
+            k--;
+        }
+        while (k >= 0 && scratch.charAt(k) == ' ') {
+            k--;
+        }
+        return k >= 0 && scratch.charAt(k) == '=';
+    }
+
+    private int number(StringBuilder s, int i, int end, int parens) {
+        int j = i;
+        boolean zero = true;
+        while (j < end && (isDigit(s.charAt(j)) || s.charAt(j) == '.' && j + 1 < end && isDigit(s.charAt(j + 1)))) {
+            zero &= s.charAt(j) == '0' || s.charAt(j) == '.';
+            j++;
+        }
+        int unit = j;
+        while (j < end && (isLetter(s.charAt(j)) || s.charAt(j) == '%')) {
+            j++;
+        }
+
+        if (zero && unit < j && indexOf(s, unit, j, ZERO_UNITS) >= 0 && !(s.charAt(unit) == '%' && parens > 0)) {
+            scratch.append('0');
+            return j;
+        }
+        char previous = scratch.length() > 0 ? scratch.charAt(scratch.length() - 1) : ':';
+        int from = i;
+        if (previous == ':' || previous == ' ') {
+            while (from < unit && s.charAt(from) == '0') {
+                from++;
+            }
+            if (from == unit || s.charAt(from) != '.') {
+                from = i;
+            }
+        }
+        scratch.append(s, from, j);
+        return j;
+    }
+
+    private int name(StringBuilder s, int i, int end) {
+        int start = scratch.length();
+        int j = i;
+        while (j < end && isNameChar(s.charAt(j))) {
+            if (s.charAt(j) == '\\' && j + 1 < end) {
+                j++;
+            }
+            j++;
+        }
+        scratch.append(s, i, j);
+        if (j < end && s.charAt(j) == '(') {
+            if (equals(s, i, j, "url")) {
+                // Unquoted URLs are kept as is
+                int close = s.indexOf(")", j);
+                if (close < 0 || s.charAt(j + 1) == '"' || s.charAt(j + 1) == '\'') {
+                    return j;
+                }
+                scratch.append(s, j, close + 1);
+                return close + 1;
+            } else if (equals(s, i, j, "rgb") && rgb(s, j + 1, end)) {
+                return s.indexOf(")", j) + 1;
+            } else if (indexOfIgnoringPrefix(scratch, start, scratch.length(), FUNCTIONS) >= 0
+                    || equalsIgnoreCase(scratch, start, scratch.length(), "-webkit-gradient")) {
+                lowerCase(scratch, start, scratch.length());
+            }
+        }
+        return j;
+    }
+
+    /**
+     * Converts a {@code rgb(r,g,b)} color to hexadecimal.
+     *
+     * @return whether the arguments were three integers
+     */
+    private boolean rgb(StringBuilder s, int i, int end) {
+        int[] components = new int[3];
+        int count = 0;
+        int value = -1;
+        for (int j = i; j < end; j++) {
+            char c = s.charAt(j);
+            if (isDigit(c)) {
+                value = (value < 0 ? 0 : value * 10) + (c - '0');
+                if (value > 255) {
+                    return false;
+                }
+            } else if ((c == ',' || c == ')') && value >= 0 && count < 3) {
+                components[count++] = value;
+                value = -1;
+                if (c == ')') {
+                    break;
+                }
+            } else {
+                return false;
+            }
+        }
+        if (count != 3 || value >= 0) {
+            return false;
+        }
+
+        scratch.setLength(scratch.length() - 3);
+        char[] hex = new char[6];
+        for (int k = 0; k < 3; k++) {
+            hex[2 * k] = Character.forDigit(components[k] >> 4, 16);
+            hex[2 * k + 1] = Character.forDigit(components[k] & 0xF, 16);
+        }
+        if (afterEquals()) {
+            scratch.append('#').append(hex);
+        } else {
+            appendHexColor(new String(hex), 0);
+        }
+        return true;
+    }
+
+    /* ****** */
+    /* Output */
+    /* ****** */
+
+    private void writeCloseBrace() throws IOException {
+        write('}');
+        if (lineBreak >= 0 && lineLength > lineBreak) {
+            pendingNewline = true;
+        }
+    }
+
+    private void write(char c) throws IOException {
+        writeLeadingComments();
+        if (pendingNewline) {
+            pendingNewline = false;
+            // The line break is counted in the next line, as YUI Compressor does
+            lineLength = 0;
+            write('\n');
+        }
+        if (outPosition == outBuffer.length) {
+            flush();
+        }
+        outBuffer[outPosition++] = c;
+        lastWritten = c;
+        written = true;
+        lineLength++;
+    }
+
+    private void write(String s) throws IOException {
+        write(s, 0, s.length());
+    }
+
+    private void write(CharSequence s, int start, int end) throws IOException {
+        for (int i = start; i < end; i++) {
+            write(s.charAt(i));
+        }
+    }
+
+    private void writeLeadingComments() throws IOException {
+        if (leadingComments.length() > 0) {
+            String comments = leadingComments.toString();
+            leadingComments.setLength(0);
+            write(comments);
+        }
+    }
+
+    private void flush() throws IOException {
+        out.write(outBuffer, 0, outPosition);
+        outPosition = 0;
+    }
+
+    /* ******* */
+    /* Helpers */
+    /* ******* */
+
+    private static boolean isWhitespace(int c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f' || c == '\u000B';
+    }
+
+    private static boolean isDelimiter(int c) {
+        return c == ':' || c == ',' || c == '>' || c == '+' || c == '!' || c == '(' || c == ')' || c == '['
+                || c == ']';
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isLetter(char c) {
+        return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z';
+    }
+
+    private static boolean isHexDigit(char c) {
+        return isDigit(c) || c >= 'a' && c <= 'f' || c >= 'A' && c <= 'F';
+    }
+
+    private static boolean isNameChar(char c) {
+        return isLetter(c) || isDigit(c) || c == '-' || c == '_' || c == '\\' || c >= 0x80;
+    }
+
+    private static boolean equals(CharSequence s, String expected) {
+        return equals(s, 0, s.length(), expected);
+    }
+
+    private static boolean equals(CharSequence s, int start, int end, String expected) {
+        if (end - start != expected.length()) {
+            return false;
+        }
+        for (int i = 0; i < expected.length(); i++) {
+            if (s.charAt(start + i) != expected.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Compares a part of a character sequence with a lower case string, ignoring case.
+     */
+    private static boolean equalsIgnoreCase(CharSequence s, int start, int end, String lowerCase) {
+        if (end - start != lowerCase.length()) {
+            return false;
+        }
+        for (int i = 0; i < lowerCase.length(); i++) {
+            if (Character.toLowerCase(s.charAt(start + i)) != lowerCase.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int indexOf(CharSequence s, int start, int end, String[] candidates) {
+        for (int i = 0; i < candidates.length; i++) {
+            if (equalsIgnoreCase(s, start, end, candidates[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int indexOfIgnoringPrefix(CharSequence s, int start, int end, String[] candidates) {
+        for (String prefix : VENDOR_PREFIXES) {
+            if (end - start > prefix.length() && equalsIgnoreCase(s, start, start + prefix.length(), prefix)) {
+                return indexOf(s, start + prefix.length(), end, candidates);
+            }
+        }
+        return indexOf(s, start, end, candidates);
+    }
+
+    private static int indexOfIgnoreCase(CharSequence s, int from, String lowerCase) {
+        for (int i = from; i <= s.length() - lowerCase.length(); i++) {
+            if (equalsIgnoreCase(s, i, i + lowerCase.length(), lowerCase)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean endsWithIgnoreCase(CharSequence s, String lowerCase) {
+        return s.length() >= lowerCase.length()
+                && equalsIgnoreCase(s, s.length() - lowerCase.length(), s.length(), lowerCase);
+    }
+
+    private static boolean endsWithIgnoreCase(CharSequence s, int start, int end, String[] candidates) {
+        for (String candidate : candidates) {
+            if (end - start >= candidate.length()
+                    && equalsIgnoreCase(s, end - candidate.length(), end, candidate)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether a character sequence ends with a whole word, ignoring case.
+     */
+    private static boolean endsWithWord(CharSequence s, String lowerCase) {
+        int start = s.length() - lowerCase.length();
+        return endsWithIgnoreCase(s, lowerCase) && (start == 0 || !isNameChar(s.charAt(start - 1)));
+    }
+
+    /**
+     * Checks whether a character sequence starts with one of the given at-rules, ignoring case.
+     */
+    private static boolean isAtRule(CharSequence s, String[] names) {
+        int end = 1;
+        while (end < s.length() && isNameChar(s.charAt(end))) {
+            end++;
+        }
+        return s.length() > 1 && s.charAt(0) == '@' && indexOf(s, 1, end, names) >= 0;
+    }
+
+    private static void lowerCase(StringBuilder s, int start, int end) {
+        for (int i = start; i < end; i++) {
+            s.setCharAt(i, Character.toLowerCase(s.charAt(i)));
+        }
+    }
+}
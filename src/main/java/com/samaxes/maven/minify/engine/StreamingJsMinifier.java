@@ -0,0 +1,475 @@
+/*
+ * Minify Maven Plugin
+ * https://github.com/samaxes/minify-maven-plugin
+ *
+ * Copyright (c) 2009 samaxes.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.samaxes.maven.minify.engine;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * Minifies a JavaScript file in a single pass, in the manner of JSMin: comments and whitespace are removed, nothing
+ * else is changed. The lexer knows strings, template literals and regular expression literals, and keeps the line
+ * breaks that automatic semicolon insertion may depend on. License comments, that start with {@code /*!} or contain
+ * {@code @license} or {@code @preserve}, are kept.<br/>
+ * No syntax tree is built: memory use does not depend on the size of the file, only on the size of the comments and
+ * on how deeply template literals, braces and parentheses are nested.
+ */
+final class StreamingJsMinifier {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * Keywords after which a slash starts a regular expression rather than a division.
+     */
+    private static final String[] KEYWORDS = {"await", "case", "delete", "do", "else", "in", "instanceof", "new",
+            "of", "return", "throw", "typeof", "void", "yield"};
+
+    /**
+     * Keywords whose parenthesized expression is followed by a statement, which may start with a regular expression.
+     */
+    private static final String[] CONTROL_KEYWORDS = {"for", "if", "while", "with"};
+
+    private final Reader in;
+
+    private final Writer out;
+
+    private final char[] inBuffer = new char[BUFFER_SIZE];
+
+    private int inPosition;
+
+    private int inLimit;
+
+    private final char[] outBuffer = new char[BUFFER_SIZE];
+
+    private int outPosition;
+
+    private char lastWritten;
+
+    private boolean written;
+
+    /**
+     * Start of the last identifier or keyword, long enough for any keyword of {@link #KEYWORDS}.
+     */
+    private final char[] word = new char[10];
+
+    private final StringBuilder comment = new StringBuilder();
+
+    private int wordLength;
+
+    /**
+     * Whether each open brace starts a template literal substitution rather than a block or an object.
+     */
+    private boolean[] braces = new boolean[16];
+
+    private int braceDepth;
+
+    /**
+     * Whether each open parenthesis follows a keyword of {@link #CONTROL_KEYWORDS}.
+     */
+    private boolean[] parens = new boolean[16];
+
+    private int parenDepth;
+
+    /**
+     * Whether the last token is a keyword of {@link #CONTROL_KEYWORDS}, or {@code await} after {@code for}.
+     */
+    private boolean afterControlKeyword;
+
+    private boolean pendingSpace;
+
+    private boolean pendingNewline;
+
+    private boolean regexAllowed = true;
+
+    /**
+     * Init StreamingJsMinifier values.
+     *
+     * @param in  the JavaScript to minify
+     * @param out where to write the minified JavaScript
+     */
+    StreamingJsMinifier(Reader in, Writer out) {
+        this.in = in;
+        this.out = out;
+    }
+
+    /**
+     * Minifies the whole input.
+     *
+     * @throws IOException when the input cannot be read or the output written
+     */
+    void minify() throws IOException {
+        int c = read();
+        if (c == '\uFEFF') {
+            c = read();
+        }
+        if (c == '#' && peek() == '!') {
+            // Hashbang, only valid on the first line
+            while (c != -1 && !isLineTerminator(c)) {
+                write((char) c);
+                c = read();
+            }
+            write('\n');
+        }
+
+        while (c != -1) {
+            if (isLineTerminator(c)) {
+                pendingNewline = true;
+                c = read();
+            } else if (isWhitespace(c)) {
+                pendingSpace = true;
+                c = read();
+            } else if (c == '/' && peek() == '/') {
+                c = lineComment();
+            } else if (c == '/' && peek() == '*') {
+                read();
+                c = blockComment();
+            } else if (c == '/' && regexAllowed) {
+                c = regex();
+            } else if (c == '"' || c == '\'') {
+                c = string(c);
+            } else if (c == '`') {
+                afterControlKeyword = false;
+                token('`');
+                write('`');
+                c = template();
+            } else if (isIdentifierChar(c)) {
+                c = word(c);
+            } else {
+                c = punctuator(c);
+            }
+        }
+
+        flush();
+    }
+
+    private int read() throws IOException {
+        if (inPosition == inLimit) {
+            inLimit = in.read(inBuffer, 0, BUFFER_SIZE);
+            inPosition = 0;
+            if (inLimit <= 0) {
+                inLimit = 0;
+                return -1;
+            }
+        }
+        return inBuffer[inPosition++];
+    }
+
+    private int peek() throws IOException {
+        int c = read();
+        if (c != -1) {
+            inPosition--;
+        }
+        return c;
+    }
+
+    /* ****** */
+    /* Tokens */
+    /* ****** */
+
+    private int lineComment() throws IOException {
+        int c = read();
+        while (c != -1 && !isLineTerminator(c)) {
+            c = read();
+        }
+        return c;
+    }
+
+    private int blockComment() throws IOException {
+        comment.setLength(0);
+        boolean lineTerminator = false;
+        int c = read();
+        while (c != -1 && !(c == '*' && peek() == '/')) {
+            comment.append((char) c);
+            lineTerminator |= isLineTerminator(c);
+            c = read();
+        }
+        read();
+
+        if (comment.length() > 0 && comment.charAt(0) == '!' || comment.indexOf("@license") >= 0
+                || comment.indexOf("@preserve") >= 0) {
+            // License comments are kept, as the other engines do
+            token('/');
+            write("/*");
+            for (int i = 0; i < comment.length(); i++) {
+                write(comment.charAt(i));
+            }
+            write("*/");
+            pendingNewline = true;
+        } else if (lineTerminator) {
+            pendingNewline = true;
+        } else {
+            pendingSpace = true;
+        }
+        return read();
+    }
+
+    private int string(int quote) throws IOException {
+        token((char) quote);
+        write((char) quote);
+        regexAllowed = false;
+        afterControlKeyword = false;
+        int c = read();
+        // U+2028 and U+2029 are allowed in strings, only CR and LF end them
+        while (c != -1 && c != '\n' && c != '\r') {
+            write((char) c);
+            if (c == '\\') {
+                c = read();
+                if (c == -1) {
+                    break;
+                }
+                write((char) c);
+                if (c == '\r' && peek() == '\n') {
+                    // A line continuation made of a CRLF line break
+                    write((char) read());
+                }
+            } else if (c == quote) {
+                return read();
+            }
+            c = read();
+        }
+        return c;
+    }
+
+    /**
+     * Copies a template literal, up to its end or to the start of a substitution.
+     */
+    private int template() throws IOException {
+        int c = read();
+        while (c != -1) {
+            write((char) c);
+            if (c == '\\') {
+                c = read();
+                if (c == -1) {
+                    break;
+                }
+                write((char) c);
+            } else if (c == '`') {
+                regexAllowed = false;
+                break;
+            } else if (c == '$' && peek() == '{') {
+                write((char) read());
+                pushBrace(true);
+                regexAllowed = true;
+                break;
+            }
+            c = read();
+        }
+        return read();
+    }
+
+    private int regex() throws IOException {
+        token('/');
+        write('/');
+        afterControlKeyword = false;
+        // The flags are read as an identifier, after which a slash is a division
+        regexAllowed = false;
+        boolean characterClass = false;
+        int c = read();
+        while (c != -1 && !isLineTerminator(c)) {
+            write((char) c);
+            if (c == '\\') {
+                c = read();
+                if (c == '\r' && peek() == '\n') {
+                    // A CRLF line break is a single line terminator
+                    c = read();
+                }
+                if (c == -1 || isLineTerminator(c)) {
+                    break;
+                }
+                write((char) c);
+            } else if (c == '[') {
+                characterClass = true;
+            } else if (c == ']') {
+                characterClass = false;
+            } else if (c == '/' && !characterClass) {
+                return read();
+            }
+            c = read();
+        }
+        return c;
+    }
+
+    private int word(int first) throws IOException {
+        token((char) first);
+        wordLength = 0;
+        int c = first;
+        do {
+            write((char) c);
+            if (wordLength < word.length) {
+                word[wordLength] = (char) c;
+            }
+            wordLength++;
+            c = read();
+        } while (c != -1 && isIdentifierChar(c));
+
+        regexAllowed = isKeyword(KEYWORDS);
+        // "for await (...)"
+        afterControlKeyword = isKeyword(CONTROL_KEYWORDS) || afterControlKeyword && isWord("await");
+        return c;
+    }
+
+    private int punctuator(int c) throws IOException {
+        char previous = lastWritten;
+        boolean adjacent = !pendingSpace && !pendingNewline;
+        boolean control = afterControlKeyword;
+        afterControlKeyword = false;
+        token((char) c);
+        write((char) c);
+        if (c == '{') {
+            pushBrace(false);
+        } else if (c == '(') {
+            pushParen(control);
+        } else if (c == ')' && parenDepth > 0 && parens[--parenDepth]) {
+            // End of the condition of a control statement, e.g. "if (a) /b/.test(c)"
+            regexAllowed = true;
+            return read();
+        } else if (c == '}' && braceDepth > 0 && braces[--braceDepth]) {
+            // End of a template literal substitution
+            return template();
+        }
+
+        if (c == ')' || c == ']') {
+            regexAllowed = false;
+        } else if ((c == '+' || c == '-') && adjacent && previous == c) {
+            // Postfix increment or decrement, e.g. "i++ / 2"
+            regexAllowed = false;
+        } else {
+            regexAllowed = true;
+        }
+        return read();
+    }
+
+    private void pushBrace(boolean template) {
+        if (braceDepth == braces.length) {
+            braces = Arrays.copyOf(braces, braceDepth * 2);
+        }
+        braces[braceDepth++] = template;
+    }
+
+    private void pushParen(boolean control) {
+        if (parenDepth == parens.length) {
+            parens = Arrays.copyOf(parens, parenDepth * 2);
+        }
+        parens[parenDepth++] = control;
+    }
+
+    /**
+     * Writes the whitespace read before a token, when it is needed to separate it from the previous one or to end a
+     * statement.
+     *
+     * @param next the first character of the token
+     */
+    private void token(char next) throws IOException {
+        if (written && pendingNewline && endsStatement(lastWritten) && startsStatement(next)) {
+            write('\n');
+        } else if (written && (pendingSpace || pendingNewline) && needsSpace(lastWritten, next)) {
+            write(' ');
+        }
+        pendingSpace = false;
+        pendingNewline = false;
+    }
+
+    private static boolean endsStatement(char c) {
+        return isIdentifierChar(c) || c == ')' || c == ']' || c == '}' || c == '+' || c == '-' || c == '"'
+                || c == '\'' || c == '`' || c == '/';
+    }
+
+    private static boolean startsStatement(char c) {
+        return isIdentifierChar(c) || c == '{' || c == '[' || c == '(' || c == '+' || c == '-' || c == '!'
+                || c == '~' || c == '"' || c == '\'' || c == '`' || c == '/'
+                // Private class fields and decorators
+                || c == '#' || c == '@';
+    }
+
+    private static boolean needsSpace(char previous, char next) {
+        return isIdentifierChar(previous) && isIdentifierChar(next)
+                // "a + +b", "a - -b"
+                || (previous == '+' || previous == '-') && previous == next
+                // "/a/ / b", not a comment
+                || previous == '/' && (next == '/' || next == '*')
+                // "1 .toString()"
+                || previous >= '0' && previous <= '9' && next == '.'
+                // "a < !--b", not an HTML comment
+                || previous == '<' && next == '!';
+    }
+
+    private boolean isKeyword(String[] keywords) {
+        for (String keyword : keywords) {
+            if (isWord(keyword)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isWord(String keyword) {
+        if (keyword.length() != wordLength) {
+            return false;
+        }
+        for (int i = 0; i < wordLength; i++) {
+            if (word[i] != keyword.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /* ****** */
+    /* Output */
+    /* ****** */
+
+    private void write(char c) throws IOException {
+        if (outPosition == outBuffer.length) {
+            flush();
+        }
+        outBuffer[outPosition++] = c;
+        lastWritten = c;
+        written = true;
+    }
+
+    private void write(String s) throws IOException {
+        for (int i = 0; i < s.length(); i++) {
+            write(s.charAt(i));
+        }
+    }
+
+    private void flush() throws IOException {
+        out.write(outBuffer, 0, outPosition);
+        outPosition = 0;
+    }
+
+    /* ******* */
+    /* Helpers */
+    /* ******* */
+
+    private static boolean isLineTerminator(int c) {
+        return c == '\n' || c == '\r' || c == '\u2028' || c == '\u2029';
+    }
+
+    private static boolean isWhitespace(int c) {
+        return c == ' ' || c == '\t' || c == '\u000B' || c == '\f' || c == '\u00A0' || c == '\uFEFF'
+                || c > 0x7F && Character.isSpaceChar(c);
+    }
+
+    private static boolean isIdentifierChar(int c) {
+        return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9' || c == '_' || c == '$'
+                || c == '\\' || c > 0x7F && !Character.isSpaceChar(c) && c != '\uFEFF' && !isLineTerminator(c);
+    }
+}
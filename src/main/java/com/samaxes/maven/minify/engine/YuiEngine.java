@@ -0,0 +1,85 @@
+/*
+ * Minify Maven Plugin
+ * https://github.com/samaxes/minify-maven-plugin
+ *
+ * Copyright (c) 2009 samaxes.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.samaxes.maven.minify.engine;
+
+import com.samaxes.maven.minify.common.JavaScriptErrorReporter;
+import com.samaxes.maven.minify.common.YuiConfig;
+import com.yahoo.platform.yui.compressor.CssCompressor;
+import com.yahoo.platform.yui.compressor.JavaScriptCompressor;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * <a href="http://yui.github.io/yuicompressor/">YUI Compressor</a> engine, for JavaScript and CSS files.
+ */
+public class YuiEngine implements MinifierEngine {
+
+    private static final Set<Capability> CAPABILITIES = Collections.unmodifiableSet(EnumSet.of(Capability.JAVASCRIPT,
+            Capability.CSS, Capability.THREAD_SAFE));
+
+    private YuiConfig yuiConfig;
+
+    private boolean verbose;
+
+    @Override
+    public String getName() {
+        return "YUI";
+    }
+
+    @Override
+    public Set<Capability> getCapabilities() {
+        return CAPABILITIES;
+    }
+
+    @Override
+    public void init(EngineConfig config) {
+        this.yuiConfig = config.getYuiConfig();
+        this.verbose = config.isVerbose();
+    }
+
+    @Override
+    public double getCostPerKilobyte(Capability type) {
+        return (type == Capability.CSS) ? 0.05 : 0.5;
+    }
+
+    @Override
+    public void minify(MinifyRequest request, Reader input, Writer output) throws IOException {
+        request.getLog().debug("Using YUI Compressor engine.");
+
+        if (request.getType() == Capability.CSS) {
+            CssCompressor compressor = new CssCompressor(input);
+            compressor.compress(output, yuiConfig.getLineBreak());
+        } else {
+            JavaScriptCompressor compressor = new JavaScriptCompressor(input,
+                    new JavaScriptErrorReporter(request.getLog(), request.getInputName()));
+            compressor.compress(output, yuiConfig.getLineBreak(), yuiConfig.isMunge(), verbose,
+                    yuiConfig.isPreserveSemicolons(), yuiConfig.isDisableOptimizations());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getName() + "{yuiConfig=" + yuiConfig + "}";
+    }
+}
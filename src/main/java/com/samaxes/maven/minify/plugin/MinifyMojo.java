@@ -19,13 +19,29 @@
 package com.samaxes.maven.minify.plugin;
 
 import com.google.common.base.Strings;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.CountingOutputStream;
 import com.google.gson.Gson;
 import com.google.javascript.jscomp.*;
 import com.google.javascript.jscomp.CompilerOptions.LanguageMode;
 import com.samaxes.maven.minify.common.Aggregation;
 import com.samaxes.maven.minify.common.AggregationConfiguration;
+import com.samaxes.maven.minify.common.CacheConfig;
 import com.samaxes.maven.minify.common.ClosureConfig;
+import com.samaxes.maven.minify.common.ClosureExterns;
+import com.samaxes.maven.minify.common.BuildManifest;
+import com.samaxes.maven.minify.common.BundleResult;
+import com.samaxes.maven.minify.common.GzipCompressor;
+import com.samaxes.maven.minify.common.MinifiedSourceDetector;
+import com.samaxes.maven.minify.common.MinifyCache;
+import com.samaxes.maven.minify.common.SourceCache;
+import com.samaxes.maven.minify.common.SourceIndex;
+import com.samaxes.maven.minify.common.SourceScanner;
+import com.samaxes.maven.minify.common.TaskTimings;
 import com.samaxes.maven.minify.common.YuiConfig;
+import com.samaxes.maven.minify.engine.EngineConfig;
+import com.samaxes.maven.minify.engine.MinifierEngine;
+import com.samaxes.maven.minify.engine.MinifierEngines;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
@@ -36,10 +52,8 @@ import org.apache.maven.plugins.annotations.Parameter;
 import java.io.*;
 import java.nio.charset.Charset;
 import java.util.*;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.concurrent.*;
+import java.util.zip.GZIPOutputStream;
 
 import static com.google.common.collect.Lists.newArrayList;
 
@@ -49,20 +63,6 @@ import static com.google.common.collect.Lists.newArrayList;
 @Mojo(name = "minify", defaultPhase = LifecyclePhase.PROCESS_RESOURCES, threadSafe = true)
 public class MinifyMojo extends AbstractMojo {
 
-    /**
-     * Engine used for minification.
-     */
-    public enum Engine {
-        /**
-         * YUI Compressor
-         */
-        YUI,
-        /**
-         * Google Closure Compiler
-         */
-        CLOSURE
-    }
-
     /* ************** */
     /* Global Options */
     /* ************** */
@@ -126,6 +126,40 @@ public class MinifyMojo extends AbstractMojo {
     @Parameter(property = "skipMinify", defaultValue = "false")
     private boolean skipMinify;
 
+    /**
+     * Write the merged file next to the minified one, e.g. to debug the result of the merge step. The merged content is
+     * otherwise handed to the minifier in memory. Merged files are always written when {@code skipMinify} is set, and
+     * never when {@code nosuffix} is set since they would have the same name as the minified files.
+     *
+     * @since 2.0.0
+     */
+    @Parameter(property = "keepMergedFiles", defaultValue = "false")
+    private boolean keepMergedFiles;
+
+    /**
+     * Copy the source files that are already minified as they are, instead of minifying them again. A file is
+     * considered minified when its name matches one of the {@code minifiedFilePatterns}, or when its lines are long
+     * and it has little whitespace. The other files of a bundle are still merged and minified, the files found
+     * between two minified ones together.<br/>
+     * Bundles are minified as a whole when the engine creates a source map for them, or when it optimizes the files of
+     * a bundle together, as the Google Closure Compiler does: its renaming and dead code removal would otherwise break
+     * the code shared between the parts of the bundle. Files minified on their own, when {@code skipMerge} is set, are
+     * always looked at.
+     *
+     * @since 2.0.0
+     */
+    @Parameter(property = "detectMinifiedFiles", defaultValue = "false")
+    private boolean detectMinifiedFiles;
+
+    /**
+     * File name patterns of the source files that are already minified, used by {@code detectMinifiedFiles}. Defaults
+     * to {@code *.min.js}, {@code *.min.css}, {@code *-min.js} and {@code *-min.css}.
+     *
+     * @since 2.0.0
+     */
+    @Parameter(property = "minifiedFilePatterns")
+    private ArrayList<String> minifiedFilePatterns;
+
     /**
      * Webapp source directory.
      */
@@ -146,6 +180,157 @@ public class MinifyMojo extends AbstractMojo {
     @Parameter(property = "bundleConfiguration")
     private String bundleConfiguration;
 
+    /**
+     * Maximum number of bundles processed concurrently. The tasks are run by a work-stealing pool of this size, so a
+     * large number of bundles does not create one thread per bundle.<br/>
+     * Defaults to the number of available processors when not set or lower than {@code 1}.
+     *
+     * @since 2.0.0
+     */
+    @Parameter(property = "parallelism", defaultValue = "0")
+    private int parallelism;
+
+    /**
+     * Stop the build as soon as one bundle fails. Running tasks are interrupted and queued ones are cancelled, instead
+     * of waiting for every other bundle to finish before reporting the failure.
+     *
+     * @since 2.0.0
+     */
+    @Parameter(property = "failFast", defaultValue = "true")
+    private boolean failFast;
+
+    /**
+     * Directory where state is kept between builds, such as the duration of each task. Tasks that took longest in the
+     * previous build, or that are expected to be the most expensive, are started first.
+     *
+     * @since 2.0.0
+     */
+    @Parameter(property = "workDir", defaultValue = "${project.build.directory}/minify")
+    private File workDir;
+
+    /**
+     * Skip bundles whose source files, options and output files did not change since the previous build. A manifest
+     * recording the digests of the inputs and outputs of each bundle is kept in {@code workDir}. Output files that were
+     * modified or deleted since are written again.
+     *
+     * @since 2.0.0
+     */
+    @Parameter(property = "incremental", defaultValue = "false")
+    private boolean incremental;
+
+    /**
+     * Cache the result of minifying each source file when {@code skipMerge} is set. Source files whose content and
+     * options did not change are copied from the cache, kept in {@code workDir}, instead of being minified again.
+     *
+     * @since 2.0.0
+     */
+    @Parameter(property = "fileCache", defaultValue = "true")
+    private boolean fileCache;
+
+    /**
+     * Maximum size of the {@code fileCache}, in megabytes. The least recently used entries are evicted at the end of
+     * each execution when the cache grows larger, as each change of a source file adds an entry.
+     *
+     * @since 2.0.0
+     */
+    @Parameter(property = "fileCacheMaxSize", defaultValue = "64")
+    private long fileCacheMaxSize;
+
+    /**
+     * Share minified files between all the builds running on this machine, e.g. when several modules minify the same
+     * third-party libraries. Bundles and source files minified before with the same options are copied from the
+     * {@code sharedCacheDir} directory instead of being minified again.
+     *
+     * @since 2.0.0
+     */
+    @Parameter(property = "sharedCache", defaultValue = "false")
+    private boolean sharedCache;
+
+    /**
+     * Directory of the cache shared between builds.
+     *
+     * @since 2.0.0
+     */
+    @Parameter(property = "sharedCacheDir", defaultValue = "${settings.localRepository}/.cache/minify-maven-plugin")
+    private File sharedCacheDir;
+
+    /**
+     * Maximum size of the cache shared between builds, in megabytes. The least recently used entries are evicted at
+     * the end of each execution when the cache grows larger.
+     *
+     * @since 2.0.0
+     */
+    @Parameter(property = "sharedCacheMaxSize", defaultValue = "512")
+    private long sharedCacheMaxSize;
+
+    /**
+     * Maximum size, in megabytes, of the in-memory cache of the source files listed in several bundles. Such files are
+     * read once per execution instead of once per bundle. Set to {@code 0} to disable the cache.
+     *
+     * @since 2.0.0
+     */
+    @Parameter(property = "sourceCacheMaxSize", defaultValue = "64")
+    private long sourceCacheMaxSize;
+
+    /**
+     * Keep the large source files of the in-memory cache outside of the Java heap, e.g. when the build runs with a
+     * small heap.
+     *
+     * @since 2.0.0
+     */
+    @Parameter(property = "sourceCacheOffHeap", defaultValue = "false")
+    private boolean sourceCacheOffHeap;
+
+    /**
+     * Report the gzipped size of each minified file. The files are compressed in memory once their bundle is processed,
+     * by the threads that are not busy with other bundles, and the sizes are logged at the end of the execution.
+     *
+     * @since 2.0.0
+     */
+    @Parameter(property = "gzipStats", defaultValue = "true")
+    private boolean gzipStats;
+
+    /**
+     * Write a gzip compressed copy, with the {@code .gz} extension, next to each output file and source map, for web
+     * servers that serve precompressed files such as nginx with {@code gzip_static}. Large files are compressed in
+     * blocks by several threads.
+     *
+     * @since 2.0.0
+     */
+    @Parameter(property = "precompress", defaultValue = "false")
+    private boolean precompress;
+
+    /**
+     * Size, in bytes, below which output files are not compressed by {@code precompress}, since they gain little from
+     * it.
+     *
+     * @since 2.0.0
+     */
+    @Parameter(property = "precompressMinSize", defaultValue = "256")
+    private long precompressMinSize;
+
+    /**
+     * Compress the files written by {@code precompress} with the best compression level, trying several deflate
+     * strategies and keeping the smallest result. Slower, but the files are only compressed once while they are served
+     * many times.
+     *
+     * @since 2.0.0
+     */
+    @Parameter(property = "precompressMaxCompression", defaultValue = "false")
+    private boolean precompressMaxCompression;
+
+    /**
+     * Source files changed since the previous build, e.g. as reported by an IDE or a file watcher. When set, only the
+     * bundles containing one of these files, or scanning with include patterns a directory where a file was added, are
+     * processed. Bundles are looked up in an index of their source files written to {@code workDir} by the previous
+     * build; all bundles are processed when no index matches the current configuration.<br/>
+     * Paths are absolute or relative to {@code webappSourceDir}.
+     *
+     * @since 2.0.0
+     */
+    @Parameter(property = "changedFiles")
+    private ArrayList<String> changedFiles;
+
     /* *********** */
     /* CSS Options */
     /* *********** */
@@ -197,12 +382,16 @@ public class MinifyMojo extends AbstractMojo {
      * Possible values are:
      * <ul>
      * <li>{@code YUI}: <a href="http://yui.github.io/yuicompressor/">YUI Compressor</a></li>
+     * <li>{@code STREAMING}: single pass minifier with the optimizations of YUI Compressor, much faster on large style
+     * sheets</li>
      * </ul>
+     * Other engines can be provided by artifacts added to the dependencies of the plugin. The bundles of the
+     * {@code bundleConfiguration} can select another engine with their {@code engine} property.
      *
      * @since 1.7.1
      */
     @Parameter(property = "cssEngine", defaultValue = "YUI")
-    private Engine cssEngine;
+    private String cssEngine;
 
     /* ****************** */
     /* JavaScript Options */
@@ -256,12 +445,16 @@ public class MinifyMojo extends AbstractMojo {
      * <ul>
      * <li>{@code YUI}: <a href="http://yui.github.io/yuicompressor/">YUI Compressor</a></li>
      * <li>{@code CLOSURE}: <a href="https://developers.google.com/closure/compiler/">Google Closure Compiler</a></li>
+     * <li>{@code STREAMING}: single pass minifier that only removes comments and whitespace, for code that is already
+     * optimized</li>
      * </ul>
+     * Other engines can be provided by artifacts added to the dependencies of the plugin. The bundles of the
+     * {@code bundleConfiguration} can select another engine with their {@code engine} property.
      *
      * @since 1.6
      */
     @Parameter(property = "jsEngine", defaultValue = "YUI")
-    private Engine jsEngine;
+    private String jsEngine;
 
     /* *************************** */
     /* YUI Compressor Only Options */
@@ -365,7 +558,8 @@ public class MinifyMojo extends AbstractMojo {
 
     /**
      * Collects information mapping the generated (compiled) source back to its original source for debugging purposes.<br/>
-     * Please visit <a href="https://docs.google.com/document/d/1U1RGAehQwRypUTovF1KRlpiOFze0b-_2gc6fAH0KY0k/edit">Source Map Revision 3 Proposal</a> for more information.
+     * Please visit <a href="https://docs.google.com/document/d/1U1RGAehQwRypUTovF1KRlpiOFze0b-_2gc6fAH0KY0k/edit">Source Map Revision 3 Proposal</a> for more information.<br/>
+     * The source map refers to each source file by its path relative to {@code jsSourceDir}.
      *
      * @since 1.7.3
      */
@@ -433,6 +627,16 @@ public class MinifyMojo extends AbstractMojo {
     @Parameter(property = "closureDefine")
     private HashMap<String, String> closureDefine;
 
+    /**
+     * Minifier engines, loaded on first use and reused by all the bundles of this execution.
+     */
+    private MinifierEngines engines;
+
+    /**
+     * Threads walking the source directories, created on first use and reused by every scan of this execution.
+     */
+    private ExecutorService scanExecutor;
+
     /**
      * Executed when the goal is invoked, it will first invoke a parallel lifecycle, ending at the given phase.
      */
@@ -445,33 +649,322 @@ public class MinifyMojo extends AbstractMojo {
 
         fillOptionalValues();
 
-        YuiConfig yuiConfig = fillYuiConfig();
-        ClosureConfig closureConfig = fillClosureConfig();
-        Collection<ProcessFilesTask> processFilesTasks;
+        CacheConfig cacheConfig = fillCacheConfig();
+        try {
+            process(cacheConfig);
+        } finally {
+            if (scanExecutor != null) {
+                scanExecutor.shutdownNow();
+                scanExecutor = null;
+            }
+        }
+    }
+
+    /**
+     * Creates the tasks of every bundle and runs them.
+     *
+     * @param cacheConfig the incremental build and cache configuration
+     * @throws MojoExecutionException when a task fails
+     * @throws MojoFailureException   when the configuration is invalid
+     */
+    protected void process(CacheConfig cacheConfig) throws MojoExecutionException, MojoFailureException {
+        List<File> changedSourceFiles = null;
+        if (changedFiles != null && !changedFiles.isEmpty()) {
+            changedSourceFiles = new ArrayList<>();
+            for (String changedFile : changedFiles) {
+                File file = new File(changedFile);
+                changedSourceFiles.add(file.isAbsolute() ? file : new File(webappSourceDir, changedFile));
+            }
+        }
+
+        runTasks(createTasks(cacheConfig, changedSourceFiles), cacheConfig);
+    }
+
+    /**
+     * Creates one task per bundle affected by the given changes, with the source files found at the time of the call.
+     * The index of the source files of each bundle is updated for the next build.
+     *
+     * @param cacheConfig  the incremental build and cache configuration
+     * @param changedFiles the files changed since the previous build, or {@code null} to create the tasks of all the
+     *                     bundles
+     * @return the tasks
+     * @throws MojoFailureException when the configuration is invalid or a source file does not exist
+     */
+    protected List<ProcessFilesTask> createTasks(CacheConfig cacheConfig, Collection<File> changedFiles)
+            throws MojoFailureException {
+        String fingerprint = getSourceIndexFingerprint();
+        File sourceIndexFile = new File(new File(workDir, "sources"), fingerprint + ".json");
+        SourceIndex sourceIndex = (changedFiles != null) ? SourceIndex.load(sourceIndexFile, fingerprint) : null;
+        Set<String> bundleKeys = null;
+        if (sourceIndex != null) {
+            bundleKeys = sourceIndex.getAffectedBundles(changedFiles);
+            getLog().info("Processing " + bundleKeys.size() + " of " + sourceIndex.size() + " bundles affected by "
+                    + changedFiles.size() + " changed files.");
+        } else {
+            if (changedFiles != null) {
+                getLog().info("No index of the source files of each bundle, processing all bundles.");
+            }
+            sourceIndex = new SourceIndex(fingerprint);
+        }
+
+        MinifierEngine cssMinifier = getEngine(cssEngine, MinifierEngine.Capability.CSS);
+        MinifierEngine jsMinifier = getEngine(jsEngine, MinifierEngine.Capability.JAVASCRIPT);
+        GzipCompressor gzipCompressor = fillGzipCompressor();
+        MinifiedSourceDetector minifiedSourceDetector = fillMinifiedSourceDetector();
+        // A single snapshot of the source directories is shared by all the tasks
+        SourceScanner sourceScanner = new SourceScanner(getScanExecutor());
+        List<ProcessFilesTask> tasks;
         try {
-            processFilesTasks = createTasks(yuiConfig, closureConfig);
+            tasks = createTasks(cssMinifier, jsMinifier, cacheConfig, gzipCompressor, sourceScanner,
+                    minifiedSourceDetector, bundleKeys);
         } catch (FileNotFoundException e) {
             throw new MojoFailureException(e.getMessage(), e);
         }
 
-        ExecutorService executor = Executors.newFixedThreadPool(processFilesTasks.size());
+        List<File> sourceFiles = new ArrayList<>();
+        for (ProcessFilesTask task : tasks) {
+            sourceIndex.putBundle(task.getKey(), task.getSourceDir(), task.hasSourceIncludes(), task.getFiles());
+            sourceFiles.addAll(task.getFiles());
+        }
+        if (cacheConfig.getSourceCache() != null) {
+            cacheConfig.getSourceCache().retain(sourceFiles);
+        }
         try {
-            List<Future<Object>> futures = executor.invokeAll(processFilesTasks);
-            for (Future<Object> future : futures) {
+            sourceIndex.store(sourceIndexFile);
+        } catch (IOException e) {
+            getLog().debug("Failed to store the index of source files.", e);
+        }
+
+        return tasks;
+    }
+
+    /**
+     * Computes a digest of the options that define the bundles and their source files. An index of source files is
+     * only valid for the configuration it was built with.
+     *
+     * @return the hex encoded digest
+     * @throws MojoFailureException when the bundle configuration file cannot be read
+     */
+    private String getSourceIndexFingerprint() throws MojoFailureException {
+        StringBuilder fingerprint = new StringBuilder();
+        fingerprint.append(webappSourceDir).append('\n').append(webappTargetDir).append('\n');
+        if (!Strings.isNullOrEmpty(bundleConfiguration)) {
+            try {
+                fingerprint.append(BuildManifest.digest(new File(bundleConfiguration))).append('\n');
+            } catch (IOException e) {
+                throw new MojoFailureException("Failed to open the bundle configuration file [" + bundleConfiguration
+                        + "].", e);
+            }
+        }
+        fingerprint.append(cssSourceDir).append('\n').append(cssSourceFiles).append('\n').append(cssSourceIncludes)
+                .append('\n').append(cssSourceExcludes).append('\n').append(cssTargetDir).append('\n')
+                .append(cssFinalFile).append('\n');
+        fingerprint.append(jsSourceDir).append('\n').append(jsSourceFiles).append('\n').append(jsSourceIncludes)
+                .append('\n').append(jsSourceExcludes).append('\n').append(jsTargetDir).append('\n')
+                .append(jsFinalFile);
+
+        return BuildManifest.digest(fingerprint.toString());
+    }
+
+    /**
+     * Runs tasks concurrently, the most expensive ones first.
+     *
+     * @param processFilesTasks the tasks to run
+     * @param cacheConfig       the incremental build and cache configuration
+     * @throws MojoExecutionException when a task fails
+     */
+    protected void runTasks(List<ProcessFilesTask> processFilesTasks, CacheConfig cacheConfig)
+            throws MojoExecutionException {
+        if (processFilesTasks.isEmpty()) {
+            return;
+        }
+
+        TaskTimings taskTimings = loadTaskTimings();
+        sortByCost(processFilesTasks, taskTimings);
+
+        ExecutorService executor = new ForkJoinPool(getParallelism(processFilesTasks.size()));
+        CompletionService<BundleResult> completionService = new ExecutorCompletionService<>(executor);
+        for (ProcessFilesTask task : processFilesTasks) {
+            completionService.submit(task);
+        }
+
+        List<BundleResult> results = new ArrayList<>();
+        List<Future<Object>> gzipTasks = new ArrayList<>();
+        ExecutionException failure = null;
+        try {
+            for (int i = 0; i < processFilesTasks.size(); i++) {
+                try {
+                    BundleResult result = completionService.take().get();
+                    results.add(result);
+                    if (gzipStats) {
+                        // Computed by idle workers while the remaining bundles are processed
+                        for (BundleResult.FileResult file : result.getFiles()) {
+                            if (file.getGzippedSize() < 0) {
+                                gzipTasks.add(executor.submit(new GzippedSizeTask(file)));
+                            }
+                        }
+                    }
+                } catch (ExecutionException e) {
+                    if (failFast) {
+                        throw new MojoExecutionException(e.getMessage(), e);
+                    }
+                    if (failure == null) {
+                        failure = e;
+                    }
+                }
+            }
+            for (Future<Object> gzipTask : gzipTasks) {
                 try {
-                    future.get();
+                    gzipTask.get();
                 } catch (ExecutionException e) {
-                    throw new MojoExecutionException(e.getMessage(), e);
+                    getLog().debug("Failed to calculate the gzipped file size.", e.getCause());
                 }
             }
-            executor.shutdown();
         } catch (InterruptedException e) {
-            executor.shutdownNow();
             throw new MojoExecutionException(e.getMessage(), e);
+        } finally {
+            // Cancels queued tasks and interrupts running ones when leaving before all tasks are done
+            executor.shutdownNow();
+            // Tasks that did not finish still show the warnings they logged, e.g. about their source files
+            for (ProcessFilesTask task : processFilesTasks) {
+                task.flushLog();
+            }
+        }
+
+        if (failure != null) {
+            throw new MojoExecutionException(failure.getMessage(), failure);
         }
+
+        storeTaskTimings(processFilesTasks, taskTimings);
+        logCompressionStatistics(results);
+        logCacheStatistics(cacheConfig);
     }
 
-    private void fillOptionalValues() {
+    private void logCompressionStatistics(List<BundleResult> results) {
+        Collections.sort(results, new Comparator<BundleResult>() {
+            @Override
+            public int compare(BundleResult o1, BundleResult o2) {
+                return o1.getKey().compareTo(o2.getKey());
+            }
+        });
+
+        for (BundleResult result : results) {
+            for (BundleResult.FileResult file : result.getFiles()) {
+                if (file.getGzippedSize() >= 0) {
+                    File minifiedFile = file.getMinifiedFile();
+                    getLog().info("Gzipped size of [" + (verbose ? minifiedFile.getPath() : minifiedFile.getName())
+                            + "]: " + file.getGzippedSize() + " bytes (" + file.getMinifiedSize()
+                            + " bytes minified).");
+                }
+            }
+        }
+    }
+
+    private void logCacheStatistics(CacheConfig cacheConfig) {
+        SourceCache sourceCache = cacheConfig.getSourceCache();
+        if (sourceCache != null && sourceCache.getHits() > 0) {
+            getLog().info("Source files cache: " + sourceCache.getHits() + " hits, " + sourceCache.getSavedBytes()
+                    + " bytes not read again.");
+        }
+
+        MinifyCache minifyCache = cacheConfig.getFileCache();
+        if (minifyCache != null && minifyCache.getHits() + minifyCache.getMisses() > 0) {
+            getLog().info("Minified files cache: " + minifyCache.getHits() + " hits, " + minifyCache.getMisses()
+                    + " misses.");
+        }
+        if (minifyCache != null) {
+            int evicted = minifyCache.trim(fileCacheMaxSize * 1024 * 1024);
+            if (evicted > 0) {
+                getLog().debug("Evicted " + evicted + " entries from the minified files cache.");
+            }
+        }
+
+        minifyCache = cacheConfig.getSharedCache();
+        if (minifyCache != null) {
+            int lookups = minifyCache.getHits() + minifyCache.getMisses();
+            if (lookups > 0) {
+                getLog().info("Shared cache: " + minifyCache.getHits() + " hits, " + minifyCache.getMisses()
+                        + " misses (" + (100 * minifyCache.getHits() / lookups) + "% hit rate), "
+                        + minifyCache.getSavedBytes() + " bytes not minified again.");
+            }
+            int evicted = minifyCache.trim(sharedCacheMaxSize * 1024 * 1024);
+            if (evicted > 0) {
+                getLog().debug("Evicted " + evicted + " entries from the shared cache.");
+            }
+        }
+    }
+
+    private TaskTimings loadTaskTimings() {
+        TaskTimings taskTimings = new TaskTimings(new File(workDir, "task-timings.properties"));
+        try {
+            taskTimings.load();
+        } catch (IOException e) {
+            getLog().debug("Failed to load the task timings of the previous build.", e);
+        }
+        return taskTimings;
+    }
+
+    private void storeTaskTimings(List<ProcessFilesTask> processFilesTasks, TaskTimings taskTimings) {
+        for (ProcessFilesTask task : processFilesTasks) {
+            if (task.getDuration() >= 0) {
+                taskTimings.put(task.getKey(), task.getDuration());
+            }
+        }
+        try {
+            taskTimings.store();
+        } catch (IOException e) {
+            getLog().debug("Failed to store the task timings.", e);
+        }
+    }
+
+    /**
+     * Sorts tasks so that the most expensive ones are started first, which keeps a single large bundle from finishing
+     * long after all the others. The cost of a task is its duration in the previous build or, when not available, an
+     * estimate based on its input size and engine.
+     *
+     * @param processFilesTasks the tasks to sort
+     * @param taskTimings       the task durations from the previous build
+     */
+    private void sortByCost(List<ProcessFilesTask> processFilesTasks, final TaskTimings taskTimings) {
+        final Map<ProcessFilesTask, Long> costs = new HashMap<>();
+        for (ProcessFilesTask task : processFilesTasks) {
+            Long previousDuration = taskTimings.get(task.getKey());
+            costs.put(task, (previousDuration != null) ? previousDuration : task.getEstimatedCost());
+        }
+
+        Collections.sort(processFilesTasks, new Comparator<ProcessFilesTask>() {
+            @Override
+            public int compare(ProcessFilesTask o1, ProcessFilesTask o2) {
+                return costs.get(o2).compareTo(costs.get(o1));
+            }
+        });
+    }
+
+    /**
+     * Gets the threads walking the source directories.
+     *
+     * @return the executor, or {@code null} to walk the directories on the calling thread
+     */
+    private ExecutorService getScanExecutor() {
+        int threads = getParallelism(Integer.MAX_VALUE);
+        if (scanExecutor == null && threads > 1) {
+            scanExecutor = new ForkJoinPool(threads);
+        }
+        return scanExecutor;
+    }
+
+    /**
+     * Returns the number of worker threads to use, never more than the number of tasks to run.
+     *
+     * @param taskCount number of tasks to run
+     * @return the number of worker threads
+     */
+    private int getParallelism(int taskCount) {
+        int threads = (parallelism > 0) ? parallelism : Runtime.getRuntime().availableProcessors();
+        return Math.max(1, Math.min(threads, taskCount));
+    }
+
+    protected void fillOptionalValues() {
         if (Strings.isNullOrEmpty(cssTargetDir)) {
             cssTargetDir = cssSourceDir;
         }
@@ -481,19 +974,104 @@ public class MinifyMojo extends AbstractMojo {
         if (Strings.isNullOrEmpty(charset)) {
             charset = Charset.defaultCharset().name();
         }
+        if (minifiedFilePatterns == null || minifiedFilePatterns.isEmpty()) {
+            minifiedFilePatterns = newArrayList("*.min.js", "*.min.css", "*-min.js", "*-min.css");
+        }
+    }
+
+    /**
+     * Gets the minifier engines, loaded once per plugin execution.
+     *
+     * @return the available engines
+     * @throws MojoFailureException when the configuration of the engines is invalid
+     */
+    private MinifierEngines getEngines() throws MojoFailureException {
+        if (engines == null) {
+            engines = new MinifierEngines(getClass().getClassLoader(),
+                    new EngineConfig(Charset.forName(charset), verbose, fillYuiConfig(), fillClosureConfig()));
+        }
+
+        return engines;
+    }
+
+    /**
+     * Gets an engine by name.
+     *
+     * @param name the engine name
+     * @param type {@link MinifierEngine.Capability#JAVASCRIPT} or {@link MinifierEngine.Capability#CSS}
+     * @return the initialized engine
+     * @throws MojoFailureException when there is no such engine or it fails to initialize
+     */
+    private MinifierEngine getEngine(String name, MinifierEngine.Capability type) throws MojoFailureException {
+        try {
+            return getEngines().get(name, type);
+        } catch (IllegalArgumentException e) {
+            throw new MojoFailureException(e.getMessage(), e);
+        } catch (IOException e) {
+            throw new MojoFailureException("Failed to initialize the minifier engines.", e);
+        }
     }
 
     private YuiConfig fillYuiConfig() {
         return new YuiConfig(yuiLineBreak, !yuiNoMunge, yuiPreserveSemicolons, yuiDisableOptimizations);
     }
 
+    private GzipCompressor fillGzipCompressor() {
+        return (precompress) ? new GzipCompressor(precompressMinSize, precompressMaxCompression) : null;
+    }
+
+    private MinifiedSourceDetector fillMinifiedSourceDetector() {
+        return (detectMinifiedFiles) ? new MinifiedSourceDetector(minifiedFilePatterns, true) : null;
+    }
+
+    protected CacheConfig fillCacheConfig() {
+        return new CacheConfig(incremental, new File(workDir, "manifests"),
+                (fileCache && skipMerge) ? new MinifyCache(new File(workDir, "cache")) : null,
+                (sharedCache) ? new MinifyCache(sharedCacheDir) : null,
+                (sourceCacheMaxSize > 0) ? new SourceCache(sourceCacheMaxSize * 1024 * 1024, sourceCacheOffHeap)
+                        : null);
+    }
+
+    /**
+     * Forgets the minifier engines, so that they are loaded again with the current content of the extern files.
+     */
+    protected void resetEngines() {
+        engines = null;
+    }
+
+    /**
+     * Gets the extern files given to the Google Closure Compiler.
+     *
+     * @return the extern files
+     */
+    protected List<File> getExternFiles() {
+        List<File> externFiles = new ArrayList<>();
+        for (String extern : closureExterns) {
+            externFiles.add(new File(webappSourceDir + File.separator + extern));
+        }
+        return externFiles;
+    }
+
+    /**
+     * Gets the directories written by the build: the target directory and the working directory.
+     *
+     * @return the output directories
+     */
+    protected List<File> getOutputDirs() {
+        return Arrays.asList(new File(webappTargetDir), workDir);
+    }
+
     private ClosureConfig fillClosureConfig() throws MojoFailureException {
         DependencyOptions dependencyOptions = new DependencyOptions();
         dependencyOptions.setDependencySorting(closureSortDependencies);
 
         List<SourceFile> externs = new ArrayList<>();
-        for (String extern : closureExterns) {
-            externs.add(SourceFile.fromFile(webappSourceDir + File.separator + extern, Charset.forName(charset)));
+        for (File externFile : getExternFiles()) {
+            try {
+                externs.add(ClosureExterns.getExtern(externFile, Charset.forName(charset)));
+            } catch (IOException e) {
+                throw new MojoFailureException("Failed to read the extern file [" + externFile.getPath() + "].", e);
+            }
         }
 
         Map<DiagnosticGroup, CheckLevel> warningLevels = new HashMap<>();
@@ -517,7 +1095,15 @@ public class MinifyMojo extends AbstractMojo {
                 closureExtraAnnotations, closureDefine);
     }
 
-    private Collection<ProcessFilesTask> createTasks(YuiConfig yuiConfig, ClosureConfig closureConfig)
+    /**
+     * Creates the tasks of the given bundles.
+     *
+     * @param bundleKeys the keys of the bundles to create, or {@code null} to create all the bundles
+     */
+    private List<ProcessFilesTask> createTasks(MinifierEngine cssMinifier, MinifierEngine jsMinifier,
+                                               CacheConfig cacheConfig, GzipCompressor gzipCompressor,
+                                               SourceScanner sourceScanner,
+                                               MinifiedSourceDetector minifiedSourceDetector, Set<String> bundleKeys)
             throws MojoFailureException, FileNotFoundException {
         List<ProcessFilesTask> tasks = newArrayList();
 
@@ -531,38 +1117,264 @@ public class MinifyMojo extends AbstractMojo {
                         + "].", e);
             }
 
+            // Bundles that depend on each other are compiled together, by the task of the first bundle of the group
+            List<List<Aggregation>> chunkGroups = (skipMerge || skipMinify) ? Collections.<List<Aggregation>>emptyList()
+                    : getChunkGroups(aggregationConfiguration.getBundles(), jsMinifier);
+            Map<String, String> chunkGroupKeys = new HashMap<>();
+            for (List<Aggregation> chunkGroup : chunkGroups) {
+                String key = ProcessFilesTask.getKey(webappTargetDir, jsTargetDir, chunkGroup.get(0).getName());
+                for (Aggregation aggregation : chunkGroup) {
+                    chunkGroupKeys.put(aggregation.getName(), key);
+                }
+            }
+
+            Map<String, ProcessFilesTask> jsTasks = new HashMap<>();
             for (Aggregation aggregation : aggregationConfiguration.getBundles()) {
+                String targetDir = Aggregation.AggregationType.css.equals(aggregation.getType()) ? cssTargetDir
+                        : jsTargetDir;
+                String key = ProcessFilesTask.getKey(webappTargetDir, targetDir, aggregation.getName());
+                if (Aggregation.AggregationType.js.equals(aggregation.getType())
+                        && chunkGroupKeys.containsKey(aggregation.getName())) {
+                    key = chunkGroupKeys.get(aggregation.getName());
+                }
+                if (bundleKeys != null && !bundleKeys.contains(key)) {
+                    continue;
+                }
+
                 if (Aggregation.AggregationType.css.equals(aggregation.getType())) {
-                    tasks.add(createCSSTask(yuiConfig, closureConfig, aggregation.getFiles(),
-                            Collections.<String>emptyList(), Collections.<String>emptyList(), aggregation.getName()));
+                    MinifierEngine engine = (aggregation.getEngine() == null) ? cssMinifier
+                            : getEngine(aggregation.getEngine(), MinifierEngine.Capability.CSS);
+                    tasks.add(createCSSTask(engine, cacheConfig, gzipCompressor, sourceScanner, minifiedSourceDetector,
+                            aggregation.getFiles(), Collections.<String>emptyList(), Collections.<String>emptyList(),
+                            aggregation.getName()));
                 } else if (Aggregation.AggregationType.js.equals(aggregation.getType())) {
-                    tasks.add(createJSTask(yuiConfig, closureConfig, aggregation.getFiles(),
-                            Collections.<String>emptyList(), Collections.<String>emptyList(), aggregation.getName()));
+                    MinifierEngine engine = (aggregation.getEngine() == null) ? jsMinifier
+                            : getEngine(aggregation.getEngine(), MinifierEngine.Capability.JAVASCRIPT);
+                    ProcessFilesTask task = createJSTask(engine, cacheConfig, gzipCompressor, sourceScanner,
+                            minifiedSourceDetector, aggregation.getFiles(), Collections.<String>emptyList(),
+                            Collections.<String>emptyList(), aggregation.getName());
+                    tasks.add(task);
+                    jsTasks.put(aggregation.getName(), task);
+                }
+            }
+
+            for (List<Aggregation> chunkGroup : chunkGroups) {
+                ProcessFilesTask firstTask = jsTasks.get(chunkGroup.get(0).getName());
+                if (firstTask == null) {
+                    continue;
+                }
+                for (Aggregation aggregation : chunkGroup.subList(1, chunkGroup.size())) {
+                    ProcessFilesTask task = jsTasks.get(aggregation.getName());
+                    firstTask.addChunk(task, aggregation.getDependencies());
+                    tasks.remove(task);
                 }
             }
         } else { // Otherwise, fallback to the default behavior
-            tasks.add(createCSSTask(yuiConfig, closureConfig, cssSourceFiles, cssSourceIncludes, cssSourceExcludes,
-                    cssFinalFile));
-            tasks.add(createJSTask(yuiConfig, closureConfig, jsSourceFiles, jsSourceIncludes, jsSourceExcludes,
-                    jsFinalFile));
+            if (bundleKeys == null
+                    || bundleKeys.contains(ProcessFilesTask.getKey(webappTargetDir, cssTargetDir, cssFinalFile))) {
+                tasks.add(createCSSTask(cssMinifier, cacheConfig, gzipCompressor, sourceScanner, minifiedSourceDetector,
+                        cssSourceFiles, cssSourceIncludes, cssSourceExcludes, cssFinalFile));
+            }
+            if (bundleKeys == null
+                    || bundleKeys.contains(ProcessFilesTask.getKey(webappTargetDir, jsTargetDir, jsFinalFile))) {
+                tasks.add(createJSTask(jsMinifier, cacheConfig, gzipCompressor, sourceScanner, minifiedSourceDetector,
+                        jsSourceFiles, jsSourceIncludes, jsSourceExcludes, jsFinalFile));
+            }
         }
 
         return tasks;
     }
 
-    private ProcessFilesTask createCSSTask(YuiConfig yuiConfig, ClosureConfig closureConfig,
+    /**
+     * Groups the JavaScript bundles that depend on each other, to compile each group at once with its bundles as
+     * chunks. Groups are only formed when all their bundles use the same engine and it can compile chunks.
+     *
+     * @param bundles    the bundles of the bundle configuration
+     * @param jsMinifier the default JavaScript engine
+     * @return the groups of more than one bundle, each sorted so that a bundle comes after the bundles it depends on
+     * @throws MojoFailureException when a dependency is not a JavaScript bundle, the dependencies form a cycle or a
+     *                              source file is listed in two bundles of a group that do not depend on each other
+     */
+    private List<List<Aggregation>> getChunkGroups(List<Aggregation> bundles, MinifierEngine jsMinifier)
+            throws MojoFailureException {
+        Map<String, Aggregation> jsBundles = new LinkedHashMap<>();
+        for (Aggregation aggregation : bundles) {
+            if (Aggregation.AggregationType.js.equals(aggregation.getType())) {
+                jsBundles.put(aggregation.getName(), aggregation);
+            }
+        }
+
+        List<Aggregation> sorted = sortByDependencies(jsBundles);
+
+        // Each bundle joins the group of its dependencies, merging them when it has several
+        Map<String, List<Aggregation>> groups = new HashMap<>();
+        List<List<Aggregation>> orderedGroups = new ArrayList<>();
+        for (Aggregation aggregation : sorted) {
+            List<Aggregation> group = null;
+            for (String dependency : aggregation.getDependencies()) {
+                List<Aggregation> dependencyGroup = groups.get(dependency);
+                if (group == null) {
+                    group = dependencyGroup;
+                } else if (group != dependencyGroup) {
+                    group.addAll(dependencyGroup);
+                    for (Aggregation member : dependencyGroup) {
+                        groups.put(member.getName(), group);
+                    }
+                    orderedGroups.remove(dependencyGroup);
+                }
+            }
+            if (group == null) {
+                group = new ArrayList<>();
+                orderedGroups.add(group);
+            }
+            group.add(aggregation);
+            groups.put(aggregation.getName(), group);
+        }
+
+        List<List<Aggregation>> chunkGroups = new ArrayList<>();
+        for (List<Aggregation> group : orderedGroups) {
+            if (group.size() < 2) {
+                continue;
+            }
+            // Merged groups are put back in dependency order
+            List<Aggregation> chunkGroup = new ArrayList<>();
+            for (Aggregation aggregation : sorted) {
+                if (group.contains(aggregation)) {
+                    chunkGroup.add(aggregation);
+                }
+            }
+
+            Set<MinifierEngine> engines = new HashSet<>();
+            for (Aggregation aggregation : chunkGroup) {
+                engines.add((aggregation.getEngine() == null) ? jsMinifier
+                        : getEngine(aggregation.getEngine(), MinifierEngine.Capability.JAVASCRIPT));
+            }
+            if (engines.size() == 1
+                    && engines.iterator().next().getCapabilities().contains(MinifierEngine.Capability.CHUNKS)) {
+                checkSharedFiles(chunkGroup);
+                chunkGroups.add(chunkGroup);
+            } else {
+                getLog().warn("The bundle [" + chunkGroup.get(0).getName() + "] and the bundles that depend on it are"
+                        + " compiled separately, their engine cannot compile them as chunks.");
+            }
+        }
+        return chunkGroups;
+    }
+
+    /**
+     * Sorts the JavaScript bundles so that a bundle comes after the bundles it depends on, in the order of the
+     * configuration otherwise.
+     *
+     * @param jsBundles the JavaScript bundles by name, in the order of the configuration
+     * @return the sorted bundles
+     * @throws MojoFailureException when a dependency is not a JavaScript bundle or the dependencies form a cycle
+     */
+    static List<Aggregation> sortByDependencies(Map<String, Aggregation> jsBundles) throws MojoFailureException {
+        // Depth first traversal, in the order of the configuration
+        List<Aggregation> sorted = new ArrayList<>();
+        Set<String> visiting = new HashSet<>();
+        for (Aggregation aggregation : jsBundles.values()) {
+            sortByDependencies(aggregation, jsBundles, visiting, sorted);
+        }
+        return sorted;
+    }
+
+    private static void sortByDependencies(Aggregation aggregation, Map<String, Aggregation> jsBundles,
+                                           Set<String> visiting, List<Aggregation> sorted)
+            throws MojoFailureException {
+        if (sorted.contains(aggregation)) {
+            return;
+        }
+        if (!visiting.add(aggregation.getName())) {
+            throw new MojoFailureException("The bundle [" + aggregation.getName()
+                    + "] depends on itself through its dependencies.");
+        }
+        for (String dependency : aggregation.getDependencies()) {
+            Aggregation dependencyBundle = jsBundles.get(dependency);
+            if (dependencyBundle == null) {
+                throw new MojoFailureException("The bundle [" + aggregation.getName() + "] depends on [" + dependency
+                        + "], which is not a JavaScript bundle of the bundle configuration.");
+            }
+            sortByDependencies(dependencyBundle, jsBundles, visiting, sorted);
+        }
+        visiting.remove(aggregation.getName());
+        sorted.add(aggregation);
+    }
+
+    /**
+     * Checks that a source file listed in several bundles of a chunk group can be compiled in the first of them only,
+     * i.e. that the other bundles depend on it.
+     *
+     * @param chunkGroup the bundles of the group, sorted so that a bundle comes after the bundles it depends on
+     * @throws MojoFailureException when a source file is listed in two bundles that do not depend on each other
+     */
+    static void checkSharedFiles(List<Aggregation> chunkGroup) throws MojoFailureException {
+        Map<String, Set<String>> ancestors = new HashMap<>();
+        Map<String, String> fileBundles = new HashMap<>();
+        for (Aggregation aggregation : chunkGroup) {
+            Set<String> bundleAncestors = new HashSet<>();
+            for (String dependency : aggregation.getDependencies()) {
+                bundleAncestors.add(dependency);
+                bundleAncestors.addAll(ancestors.get(dependency));
+            }
+            ancestors.put(aggregation.getName(), bundleAncestors);
+
+            for (String file : aggregation.getFiles()) {
+                String firstBundle = fileBundles.get(file);
+                if (firstBundle == null) {
+                    fileBundles.put(file, aggregation.getName());
+                } else if (!bundleAncestors.contains(firstBundle)) {
+                    throw new MojoFailureException("The source file [" + file + "] is listed in the bundles ["
+                            + firstBundle + "] and [" + aggregation.getName() + "], which do not depend on each other"
+                            + " and are compiled as chunks: list it in a bundle they both depend on.");
+                }
+            }
+        }
+    }
+
+    private ProcessFilesTask createCSSTask(MinifierEngine engine, CacheConfig cacheConfig,
+                                           GzipCompressor gzipCompressor, SourceScanner sourceScanner,
+                                           MinifiedSourceDetector minifiedSourceDetector,
                                            List<String> cssSourceFiles, List<String> cssSourceIncludes, List<String> cssSourceExcludes,
                                            String cssFinalFile) throws FileNotFoundException {
         return new ProcessCSSFilesTask(getLog(), verbose, bufferSize, Charset.forName(charset), suffix, nosuffix,
-                skipMerge, skipMinify, webappSourceDir, webappTargetDir, cssSourceDir, cssSourceFiles,
-                cssSourceIncludes, cssSourceExcludes, cssTargetDir, cssFinalFile, cssEngine, yuiConfig);
+                skipMerge, skipMinify, keepMergedFiles, webappSourceDir, webappTargetDir, cssSourceDir,
+                cssSourceFiles, cssSourceIncludes, cssSourceExcludes, cssTargetDir, cssFinalFile, engine, cacheConfig,
+                gzipCompressor, sourceScanner, minifiedSourceDetector);
     }
 
-    private ProcessFilesTask createJSTask(YuiConfig yuiConfig, ClosureConfig closureConfig, List<String> jsSourceFiles,
-                                          List<String> jsSourceIncludes, List<String> jsSourceExcludes, String jsFinalFile)
+    private ProcessFilesTask createJSTask(MinifierEngine engine, CacheConfig cacheConfig,
+                                          GzipCompressor gzipCompressor, SourceScanner sourceScanner,
+                                          MinifiedSourceDetector minifiedSourceDetector,
+                                          List<String> jsSourceFiles, List<String> jsSourceIncludes, List<String> jsSourceExcludes, String jsFinalFile)
             throws FileNotFoundException {
         return new ProcessJSFilesTask(getLog(), verbose, bufferSize, Charset.forName(charset), suffix, nosuffix,
-                skipMerge, skipMinify, webappSourceDir, webappTargetDir, jsSourceDir, jsSourceFiles, jsSourceIncludes,
-                jsSourceExcludes, jsTargetDir, jsFinalFile, jsEngine, yuiConfig, closureConfig);
+                skipMerge, skipMinify, keepMergedFiles, webappSourceDir, webappTargetDir, jsSourceDir, jsSourceFiles,
+                jsSourceIncludes, jsSourceExcludes, jsTargetDir, jsFinalFile, engine, cacheConfig, gzipCompressor,
+                sourceScanner, minifiedSourceDetector);
+    }
+
+    /**
+     * Computes the gzipped size of a minified file, without writing the compressed bytes anywhere.
+     */
+    private static class GzippedSizeTask implements Callable<Object> {
+
+        private final BundleResult.FileResult file;
+
+        GzippedSizeTask(BundleResult.FileResult file) {
+            this.file = file;
+        }
+
+        @Override
+        public Object call() throws IOException {
+            CountingOutputStream counter = new CountingOutputStream(ByteStreams.nullOutputStream());
+            try (InputStream in = new FileInputStream(file.getMinifiedFile());
+                 OutputStream out = new GZIPOutputStream(counter)) {
+                ByteStreams.copy(in, out);
+            }
+            file.setGzippedSize(counter.getCount());
+
+            return null;
+        }
     }
 }
@@ -18,12 +18,14 @@
  */
 package com.samaxes.maven.minify.plugin;
 
-import com.samaxes.maven.minify.common.YuiConfig;
-import com.samaxes.maven.minify.plugin.MinifyMojo.Engine;
-import com.yahoo.platform.yui.compressor.CssCompressor;
+import com.samaxes.maven.minify.common.CacheConfig;
+import com.samaxes.maven.minify.common.GzipCompressor;
+import com.samaxes.maven.minify.common.MinifiedSourceDetector;
+import com.samaxes.maven.minify.common.SourceScanner;
+import com.samaxes.maven.minify.engine.MinifierEngine;
 import org.apache.maven.plugin.logging.Log;
 
-import java.io.*;
+import java.io.FileNotFoundException;
 import java.nio.charset.Charset;
 import java.util.List;
 
@@ -44,6 +46,7 @@ public class ProcessCSSFilesTask extends ProcessFilesTask {
      * @param nosuffix        whether to use a suffix for the minified file name or not
      * @param skipMerge       whether to skip the merge step or not
      * @param skipMinify      whether to skip the minify step or not
+     * @param keepMergedFiles whether to write the merged file next to the minified one or not
      * @param webappSourceDir web resources source directory
      * @param webappTargetDir web resources target directory
      * @param inputDir        directory containing source files
@@ -53,56 +56,33 @@ public class ProcessCSSFilesTask extends ProcessFilesTask {
      * @param outputDir       directory to write the final file
      * @param outputFilename  the output file name
      * @param engine          minify processor engine selected
-     * @param yuiConfig       YUI Compressor configuration
+     * @param cacheConfig     incremental build configuration
+     * @param gzipCompressor  writes compressed copies of the output files, may be {@code null}
+     * @param sourceScanner   finds the source files matching include patterns
+     * @param minifiedSources finds the source files that are copied as is instead of being minified, may be
+     *                        {@code null}
      * @throws FileNotFoundException when the given source file does not exist
      */
     public ProcessCSSFilesTask(Log log, boolean verbose, Integer bufferSize, Charset charset, String suffix,
-                               boolean nosuffix, boolean skipMerge, boolean skipMinify, String webappSourceDir,
-                               String webappTargetDir, String inputDir, List<String> sourceFiles,
+                               boolean nosuffix, boolean skipMerge, boolean skipMinify, boolean keepMergedFiles,
+                               String webappSourceDir, String webappTargetDir, String inputDir, List<String> sourceFiles,
                                List<String> sourceIncludes, List<String> sourceExcludes, String outputDir,
-                               String outputFilename, Engine engine, YuiConfig yuiConfig) throws FileNotFoundException {
-        super(log, verbose, bufferSize, charset, suffix, nosuffix, skipMerge, skipMinify, webappSourceDir,
-                webappTargetDir, inputDir, sourceFiles, sourceIncludes, sourceExcludes, outputDir, outputFilename,
-                engine, yuiConfig);
+                               String outputFilename, MinifierEngine engine, CacheConfig cacheConfig,
+                               GzipCompressor gzipCompressor, SourceScanner sourceScanner,
+                               MinifiedSourceDetector minifiedSources)
+            throws FileNotFoundException {
+        super(log, verbose, bufferSize, charset, suffix, nosuffix, skipMerge, skipMinify, keepMergedFiles,
+                webappSourceDir, webappTargetDir, inputDir, sourceFiles, sourceIncludes, sourceExcludes, outputDir,
+                outputFilename, engine, cacheConfig, gzipCompressor, sourceScanner, minifiedSources);
     }
 
     /**
-     * Minifies a CSS file. Create missing parent directories if needed.
+     * Gets the type of the files processed by this task.
      *
-     * @param mergedFile   input file resulting from the merged step
-     * @param minifiedFile output file resulting from the minify step
-     * @throws IOException when the minify step fails
+     * @return {@link MinifierEngine.Capability#CSS}
      */
     @Override
-    protected void minify(File mergedFile, File minifiedFile) throws IOException {
-        if (!minifiedFile.getParentFile().exists() && !minifiedFile.getParentFile().mkdirs()) {
-            throw new RuntimeException("Unable to create target directory for: " + minifiedFile.getParentFile());
-        }
-
-        try (InputStream in = new FileInputStream(mergedFile);
-             OutputStream out = new FileOutputStream(minifiedFile);
-             InputStreamReader reader = new InputStreamReader(in, charset);
-             OutputStreamWriter writer = new OutputStreamWriter(out, charset)) {
-            log.info("Creating the minified file [" + (verbose ? minifiedFile.getPath() : minifiedFile.getName())
-                    + "].");
-
-            switch (engine) {
-                case YUI:
-                    log.debug("Using YUI Compressor engine.");
-
-                    CssCompressor compressor = new CssCompressor(reader);
-                    compressor.compress(writer, yuiConfig.getLineBreak());
-                    break;
-                default:
-                    log.warn("CSS engine not supported.");
-                    break;
-            }
-        } catch (IOException e) {
-            log.error("Failed to compress the CSS file [" + (verbose ? mergedFile.getPath() : mergedFile.getName())
-                    + "].", e);
-            throw e;
-        }
-
-        logCompressionGains(mergedFile, minifiedFile);
+    MinifierEngine.Capability getType() {
+        return MinifierEngine.Capability.CSS;
     }
 }
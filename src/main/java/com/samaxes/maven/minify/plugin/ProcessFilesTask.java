@@ -18,31 +18,50 @@
  */
 package com.samaxes.maven.minify.plugin;
 
+import com.samaxes.maven.minify.common.AtomicOutputFile;
+import com.samaxes.maven.minify.common.BufferedLog;
+import com.samaxes.maven.minify.common.BuildManifest;
+import com.samaxes.maven.minify.common.BundleResult;
+import com.samaxes.maven.minify.common.CacheConfig;
+import com.samaxes.maven.minify.common.GzipCompressor;
+import com.samaxes.maven.minify.common.MinifiedSourceDetector;
+import com.samaxes.maven.minify.common.MinifyCache;
+import com.samaxes.maven.minify.common.SourceCache;
 import com.samaxes.maven.minify.common.SourceFilesEnumeration;
-import com.samaxes.maven.minify.common.YuiConfig;
-import com.samaxes.maven.minify.plugin.MinifyMojo.Engine;
+import com.samaxes.maven.minify.common.SourceScanner;
+import com.samaxes.maven.minify.engine.MinifierEngine;
+import com.samaxes.maven.minify.engine.MinifyChunk;
+import com.samaxes.maven.minify.engine.MinifyInput;
+import com.samaxes.maven.minify.engine.MinifyRequest;
 import org.apache.maven.plugin.logging.Log;
-import org.codehaus.plexus.util.DirectoryScanner;
 import org.codehaus.plexus.util.FileUtils;
 import org.codehaus.plexus.util.IOUtil;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
-import java.util.concurrent.Callable;
-import java.util.zip.GZIPOutputStream;
+import java.util.Set;
+import java.util.concurrent.*;
 
 /**
  * Abstract class for merging and compressing a files list.
  */
-public abstract class ProcessFilesTask implements Callable<Object> {
+public abstract class ProcessFilesTask implements Callable<BundleResult> {
 
-    public static final String TEMP_SUFFIX = ".tmp";
+    /**
+     * Rough cost, in milliseconds per kilobyte of input, of merging files without minifying them.
+     */
+    private static final double MERGE_COST_PER_KILOBYTE = 0.01;
 
-    protected final Log log;
+    protected final BufferedLog log;
 
     protected final boolean verbose;
 
@@ -58,9 +77,15 @@ public abstract class ProcessFilesTask implements Callable<Object> {
 
     protected final boolean skipMinify;
 
-    protected final Engine engine;
+    protected final boolean keepMergedFiles;
+
+    protected final MinifierEngine engine;
 
-    protected final YuiConfig yuiConfig;
+    private final CacheConfig cacheConfig;
+
+    private final GzipCompressor gzipCompressor;
+
+    private final MinifiedSourceDetector minifiedSourceDetector;
 
     private final File sourceDir;
 
@@ -70,14 +95,30 @@ public abstract class ProcessFilesTask implements Callable<Object> {
 
     private final List<File> files = new ArrayList<>();
 
+    private final Set<File> fileIndex = new HashSet<>();
+
+    /**
+     * Bundles compiled together with this one, as chunks of a single compilation, in dependency order.
+     */
+    private final List<ProcessFilesTask> chunks = new ArrayList<>();
+
+    /**
+     * Names of the bundles this bundle depends on, when it is compiled as a chunk.
+     */
+    private List<String> dependencies = Collections.emptyList();
+
     private final boolean sourceFilesEmpty;
 
     private final boolean sourceIncludesEmpty;
 
+    private final BundleResult result;
+
+    private volatile long duration = -1;
+
     /**
      * Task constructor.
      *
-     * @param log             Maven plugin log
+     * @param log             Maven plugin log, buffered until the task finishes
      * @param verbose         display additional info
      * @param bufferSize      size of the buffer used to read source files
      * @param charset         if a character set is specified, a byte-to-char variant allows the encoding to be selected.
@@ -86,6 +127,7 @@ public abstract class ProcessFilesTask implements Callable<Object> {
      * @param nosuffix        whether to use a suffix for the minified file name or not
      * @param skipMerge       whether to skip the merge step or not
      * @param skipMinify      whether to skip the minify step or not
+     * @param keepMergedFiles whether to write the merged file next to the minified one or not
      * @param webappSourceDir web resources source directory
      * @param webappTargetDir web resources target directory
      * @param inputDir        directory containing source files
@@ -95,15 +137,21 @@ public abstract class ProcessFilesTask implements Callable<Object> {
      * @param outputDir       directory to write the final file
      * @param outputFilename  the output file name
      * @param engine          minify processor engine selected
-     * @param yuiConfig       YUI Compressor configuration
+     * @param cacheConfig     incremental build configuration
+     * @param gzipCompressor  writes compressed copies of the output files, may be {@code null}
+     * @param sourceScanner   finds the source files matching include patterns
+     * @param minifiedSources finds the source files that are copied as is instead of being minified, may be
+     *                        {@code null}
      * @throws FileNotFoundException when the given source file does not exist
      */
     public ProcessFilesTask(Log log, boolean verbose, Integer bufferSize, Charset charset, String suffix,
-                            boolean nosuffix, boolean skipMerge, boolean skipMinify, String webappSourceDir,
-                            String webappTargetDir, String inputDir, List<String> sourceFiles,
+                            boolean nosuffix, boolean skipMerge, boolean skipMinify, boolean keepMergedFiles,
+                            String webappSourceDir, String webappTargetDir, String inputDir, List<String> sourceFiles,
                             List<String> sourceIncludes, List<String> sourceExcludes, String outputDir,
-                            String outputFilename, Engine engine, YuiConfig yuiConfig) throws FileNotFoundException {
-        this.log = log;
+                            String outputFilename, MinifierEngine engine, CacheConfig cacheConfig,
+                            GzipCompressor gzipCompressor, SourceScanner sourceScanner,
+                            MinifiedSourceDetector minifiedSources) throws FileNotFoundException {
+        this.log = new BufferedLog(log);
         this.verbose = verbose;
         this.bufferSize = bufferSize;
         this.charset = charset;
@@ -111,8 +159,11 @@ public abstract class ProcessFilesTask implements Callable<Object> {
         this.nosuffix = nosuffix;
         this.skipMerge = skipMerge;
         this.skipMinify = skipMinify;
+        this.keepMergedFiles = keepMergedFiles;
         this.engine = engine;
-        this.yuiConfig = yuiConfig;
+        this.cacheConfig = cacheConfig;
+        this.gzipCompressor = gzipCompressor;
+        this.minifiedSourceDetector = minifiedSources;
 
         this.sourceDir = new File(webappSourceDir + File.separator + inputDir);
         this.targetDir = new File(webappTargetDir + File.separator + outputDir);
@@ -120,63 +171,54 @@ public abstract class ProcessFilesTask implements Callable<Object> {
         for (String sourceFilename : sourceFiles) {
             addNewSourceFile(mergedFilename, sourceFilename);
         }
-        for (File sourceInclude : getFilesToInclude(sourceIncludes, sourceExcludes)) {
-            if (!files.contains(sourceInclude)) {
+        for (File sourceInclude : getFilesToInclude(sourceScanner, sourceIncludes, sourceExcludes)) {
+            if (!fileIndex.contains(sourceInclude)) {
                 addNewSourceFile(mergedFilename, sourceInclude);
             }
         }
         this.sourceFilesEmpty = sourceFiles.isEmpty();
         this.sourceIncludesEmpty = sourceIncludes.isEmpty();
+        this.result = new BundleResult(getKey());
     }
 
     /**
-     * Method executed by the thread.
+     * Method executed by the thread. Log messages are kept in memory and written as a single block once the task
+     * finishes, so that tasks can run concurrently without interleaving their output.
      *
+     * @return the sizes of the minified files
      * @throws IOException when the merge or minify steps fail
      */
     @Override
-    public Object call() throws IOException {
-        synchronized (log) {
-            String fileType = (this instanceof ProcessCSSFilesTask) ? "CSS" : "JavaScript";
+    public BundleResult call() throws IOException {
+        long start = System.nanoTime();
+        boolean upToDate = false;
+        try {
+            String fileType = getFileType();
             log.info("Starting " + fileType + " task:");
 
             if (!targetDir.exists() && !targetDir.mkdirs()) {
                 throw new RuntimeException("Unable to create target directory for: " + targetDir);
             }
 
-            if (!files.isEmpty()) {
-                if (skipMerge) {
-                    log.info("Skipping the merge step...");
-                    String sourceBasePath = sourceDir.getAbsolutePath();
-
-                    for (File mergedFile : files) {
-                        // Create folders to preserve sub-directory structure when only minifying
-                        String originalPath = mergedFile.getAbsolutePath();
-                        String subPath = originalPath.substring(sourceBasePath.length(),
-                                originalPath.lastIndexOf(File.separator));
-                        File targetPath = new File(targetDir.getAbsolutePath() + subPath);
-                        if (!targetPath.exists() && !targetPath.mkdirs()) {
-                            throw new RuntimeException("Unable to create target directory for: " + targetPath);
-                        }
-
-                        File minifiedFile = new File(targetPath, (nosuffix) ? mergedFile.getName()
-                                : FileUtils.removeExtension(mergedFile.getName()) + suffix + "." + FileUtils.extension(mergedFile.getName()));
-                        minify(mergedFile, minifiedFile);
+            List<File> sourceFiles = getFiles();
+            if (!sourceFiles.isEmpty()) {
+                BuildManifest manifest = null;
+                if (cacheConfig.isIncremental()) {
+                    BuildManifest previousManifest = BuildManifest.load(getManifestFile());
+                    manifest = new BuildManifest(BuildManifest.digest(getFingerprint()));
+                    for (File file : sourceFiles) {
+                        manifest.addInput(file, previousManifest);
                     }
-                } else if (skipMinify) {
-                    File mergedFile = new File(targetDir, mergedFilename);
-                    merge(mergedFile);
-                    log.info("Skipping the minify step...");
+                    upToDate = previousManifest != null && previousManifest.isUpToDate(manifest);
+                }
+
+                result.setUpToDate(upToDate);
+                if (upToDate) {
+                    log.info("Skipping unchanged " + fileType + " files...");
                 } else {
-                    File mergedFile = new File(targetDir, (nosuffix) ? mergedFilename + TEMP_SUFFIX : mergedFilename);
-                    merge(mergedFile);
-                    File minifiedFile = new File(targetDir, (nosuffix) ? mergedFilename
-                            : FileUtils.removeExtension(mergedFilename) + suffix + "." + FileUtils.extension(mergedFilename));
-                    minify(mergedFile, minifiedFile);
-                    if (nosuffix) {
-                        if (!mergedFile.delete()) {
-                            mergedFile.deleteOnExit();
-                        }
+                    List<File> outputs = process();
+                    if (manifest != null) {
+                        storeManifest(manifest, outputs);
                     }
                 }
                 log.info("");
@@ -184,13 +226,510 @@ public abstract class ProcessFilesTask implements Callable<Object> {
                 // 'files' list will be empty if source file paths or names added to the project's POM are invalid.
                 log.error("No valid " + fileType + " source files found to process.");
             }
+        } finally {
+            if (!upToDate) {
+                duration = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            }
+            log.flush();
+        }
+
+        return result;
+    }
+
+    /**
+     * Runs the merge and minify steps.
+     *
+     * @return the files written to the target directory
+     * @throws IOException when the merge or minify steps fail
+     */
+    private List<File> process() throws IOException {
+        if (!chunks.isEmpty()) {
+            return processChunks();
+        }
+
+        List<File> outputs = new ArrayList<>();
+        String fingerprint = cacheConfig.getCaches().isEmpty() ? null : getFingerprint();
+
+        if (skipMerge) {
+            log.info("Skipping the merge step...");
+            String sourceBasePath = sourceDir.getAbsolutePath();
+
+            List<MinifyFileTask> fileTasks = new ArrayList<>();
+            for (File mergedFile : files) {
+                // Create folders to preserve sub-directory structure when only minifying
+                String originalPath = mergedFile.getAbsolutePath();
+                String subPath = originalPath.substring(sourceBasePath.length(),
+                        originalPath.lastIndexOf(File.separator));
+                File targetPath = new File(targetDir.getAbsolutePath() + subPath);
+                if (!targetPath.exists() && !targetPath.mkdirs()) {
+                    throw new RuntimeException("Unable to create target directory for: " + targetPath);
+                }
+
+                File minifiedFile = new File(targetPath, (nosuffix) ? mergedFile.getName()
+                        : FileUtils.removeExtension(mergedFile.getName()) + suffix + "." + FileUtils.extension(mergedFile.getName()));
+                fileTasks.add(new MinifyFileTask(mergedFile, minifiedFile, fingerprint));
+                outputs.add(minifiedFile);
+            }
+            invokeAll(fileTasks);
+        } else if (skipMinify) {
+            File mergedFile = new File(targetDir, mergedFilename);
+            merge(mergedFile);
+            log.info("Skipping the minify step...");
+            precompress(log, mergedFile, null);
+            outputs.add(mergedFile);
+        } else if (isMergeNeeded()) {
+            // The merged content is handed to the minifier in memory, it is only written when asked for
+            File mergedFile = new File(targetDir, mergedFilename);
+            List<Segment> segments = new ArrayList<>();
+            byte[] content = merge(segments);
+            if (keepMergedFiles && !nosuffix) {
+                log.info("Creating the merged file [" + (verbose ? mergedFile.getPath() : mergedFile.getName())
+                        + "].");
+                AtomicOutputFile.write(mergedFile, content);
+                outputs.add(mergedFile);
+            }
+            checkInterrupted();
+            File minifiedFile = getMinifiedFile();
+            minifyCached(log, mergedFile, content, segments, minifiedFile, fingerprint);
+            outputs.add(minifiedFile);
+        } else {
+            // The engine reads each source file on its own
+            File mergedFile = new File(targetDir, mergedFilename);
+            List<Segment> segments = split();
+            long size = 0;
+            for (File file : files) {
+                size += file.length();
+            }
+            checkInterrupted();
+            File minifiedFile = getMinifiedFile();
+            minify(log, mergedFile, null, segments, minifiedFile);
+            precompress(log, minifiedFile, logCompressionGains(log, size, minifiedFile));
+            outputs.add(minifiedFile);
         }
 
-        return null;
+        return outputs;
     }
 
     /**
-     * Merges a list of source files. Create missing parent directories if needed.
+     * Compiles this bundle and the bundles added as chunks at once, then writes the minified file of each bundle. A
+     * source file listed in several bundles is only compiled in the first of them, which the others depend on.
+     *
+     * @return the files written to the target directory
+     * @throws IOException when the minify step fails
+     */
+    private List<File> processChunks() throws IOException {
+        List<ProcessFilesTask> bundles = new ArrayList<>();
+        bundles.add(this);
+        bundles.addAll(chunks);
+
+        // The chunk tasks never run on their own, their warnings are written along with this task's log
+        for (ProcessFilesTask chunk : chunks) {
+            chunk.flushLog();
+        }
+
+        List<MinifyChunk> minifyChunks = new ArrayList<>();
+        List<Long> sizes = new ArrayList<>();
+        Set<File> compiledFiles = new HashSet<>();
+        for (ProcessFilesTask bundle : bundles) {
+            List<MinifyInput> inputs = new ArrayList<>();
+            long size = 0;
+            for (File file : bundle.files) {
+                if (!compiledFiles.add(file.getAbsoluteFile())) {
+                    log.debug("Skipping the source file [" + (verbose ? file.getPath() : file.getName())
+                            + "] of the bundle [" + bundle.mergedFilename + "], it is compiled in an earlier chunk.");
+                    continue;
+                }
+                log.info("Processing source file [" + (verbose ? file.getPath() : file.getName()) + "].");
+                inputs.add(bundle.new SourceInput(file, null));
+                size += file.length();
+            }
+            sizes.add(size);
+            minifyChunks.add(new MinifyChunk(bundle.mergedFilename, inputs, bundle.dependencies,
+                    bundle.getMinifiedFile()));
+        }
+
+        MinifyRequest request = new MinifyRequest(getType(), log, mergedFilename, getMinifiedFile());
+        request.setChunks(minifyChunks);
+        log.info("Compiling " + bundles.size() + " bundles as chunks.");
+        try (Reader reader = new StringReader(""); Writer writer = new StringWriter()) {
+            checkInterrupted();
+            if (engine.getCapabilities().contains(MinifierEngine.Capability.THREAD_SAFE)) {
+                engine.minify(request, reader, writer);
+            } else {
+                synchronized (engine) {
+                    engine.minify(request, reader, writer);
+                }
+            }
+            checkInterrupted();
+        } catch (IOException e) {
+            log.error("Failed to compress the " + getFileType() + " file [" + mergedFilename + "] and its chunks.", e);
+            throw e;
+        }
+
+        List<File> outputs = new ArrayList<>();
+        for (int i = 0; i < bundles.size(); i++) {
+            MinifyChunk chunk = minifyChunks.get(i);
+            File minifiedFile = chunk.getMinifiedFile();
+            if (!minifiedFile.getParentFile().exists() && !minifiedFile.getParentFile().mkdirs()) {
+                throw new RuntimeException("Unable to create target directory for: " + minifiedFile.getParentFile());
+            }
+            log.info("Creating the minified file [" + (verbose ? minifiedFile.getPath() : minifiedFile.getName())
+                    + "].");
+
+            StringBuilder content = new StringBuilder(chunk.getContent());
+            if (chunk.getSourceMap() != null) {
+                File sourceMapFile = new File(minifiedFile.getPath() + ".map");
+                log.info("Creating the minified file map ["
+                        + (verbose ? sourceMapFile.getPath() : sourceMapFile.getName()) + "].");
+
+                flushSourceMap(log, sourceMapFile, chunk.getSourceMap());
+
+                content.append(System.getProperty("line.separator"));
+                content.append("//# sourceMappingURL=").append(sourceMapFile.getName());
+            }
+            AtomicOutputFile.write(minifiedFile, content.toString().getBytes(charset));
+
+            precompress(log, minifiedFile, logCompressionGains(log, sizes.get(i), minifiedFile));
+            outputs.add(minifiedFile);
+        }
+
+        return outputs;
+    }
+
+    /**
+     * Checks if the source files are merged before being minified. Engines that read each source file on their own do
+     * not need it, unless the merged file is kept or caches are enabled, whose keys are computed from the merged
+     * content.
+     *
+     * @return {@code true} if the merged content is needed
+     */
+    private boolean isMergeNeeded() {
+        return !engine.getCapabilities().contains(MinifierEngine.Capability.MULTIPLE_INPUTS)
+                || keepMergedFiles && !nosuffix || !cacheConfig.getCaches().isEmpty();
+    }
+
+    private File getMinifiedFile() {
+        return new File(targetDir, (nosuffix) ? mergedFilename
+                : FileUtils.removeExtension(mergedFilename) + suffix + "." + FileUtils.extension(mergedFilename));
+    }
+
+    /**
+     * Minifies a file, unless the same file was already minified with the same options: the result is then copied from
+     * the first cache holding it. Caches that missed are filled with the result.
+     *
+     * @param log          log used for the messages of this file
+     * @param mergedFile   input file resulting from the merged step, which may not have been written
+     * @param content      content of the input file
+     * @param segments     parts of the content to minify or to copy as is
+     * @param minifiedFile output file resulting from the minify step
+     * @param fingerprint  description of the options of this task, only used when caches are enabled
+     * @throws IOException when the minify step fails
+     */
+    private void minifyCached(Log log, File mergedFile, byte[] content, List<Segment> segments, File minifiedFile,
+                              String fingerprint) throws IOException {
+        List<MinifyCache> caches = cacheConfig.getCaches();
+        if (caches.isEmpty()) {
+            minify(log, mergedFile, content, segments, minifiedFile);
+            precompress(log, minifiedFile, logCompressionGains(log, content.length, minifiedFile));
+            return;
+        }
+
+        String key = MinifyCache.key(mergedFile, content, minifiedFile, fingerprint);
+        List<MinifyCache> missedCaches = new ArrayList<>();
+        boolean restored = false;
+        for (MinifyCache cache : caches) {
+            if (cache.restore(key, content.length, minifiedFile)) {
+                log.info("Restored the minified file [" + (verbose ? minifiedFile.getPath() : minifiedFile.getName())
+                        + "] from cache.");
+                restored = true;
+                break;
+            }
+            missedCaches.add(cache);
+        }
+        if (!restored) {
+            minify(log, mergedFile, content, segments, minifiedFile);
+        }
+        precompress(log, minifiedFile, logCompressionGains(log, content.length, minifiedFile));
+
+        for (MinifyCache cache : missedCaches) {
+            try {
+                cache.store(key, minifiedFile);
+            } catch (IOException e) {
+                log.warn("Failed to cache the minified file [" + minifiedFile.getName() + "].", e);
+            }
+        }
+    }
+
+    /**
+     * Describes the options that affect the output of this task. The task is processed again when they change.
+     *
+     * @return the options description
+     * @throws IOException when a file the options depend on cannot be read
+     */
+    protected String getFingerprint() throws IOException {
+        return getClass().getName() + "{version=" + ProcessFilesTask.class.getPackage().getImplementationVersion()
+                + ", engine=" + engine + ", charset=" + charset + ", suffix=" + suffix + ", nosuffix=" + nosuffix
+                + ", skipMerge=" + skipMerge + ", skipMinify=" + skipMinify + ", keepMergedFiles=" + keepMergedFiles
+                + ", gzipCompressor=" + gzipCompressor + ", minifiedSourceDetector=" + minifiedSourceDetector
+                + ", chunks=" + getChunksDescription() + "}";
+    }
+
+    private String getChunksDescription() {
+        StringBuilder description = new StringBuilder("[");
+        for (ProcessFilesTask chunk : chunks) {
+            if (description.length() > 1) {
+                description.append(", ");
+            }
+            description.append(chunk.mergedFilename).append(chunk.dependencies);
+        }
+        return description.append(']').toString();
+    }
+
+    /**
+     * Gets the file where the build manifest of this task is kept.
+     *
+     * @return the manifest file
+     */
+    private File getManifestFile() {
+        return new File(cacheConfig.getManifestDir(), BuildManifest.digest(getKey()) + ".json");
+    }
+
+    /**
+     * Stores the build manifest once the task succeeded. Source maps and compressed copies written next to the output
+     * files are recorded too.
+     *
+     * @param manifest the manifest describing the source files and options of this build
+     * @param outputs  the files written to the target directory
+     */
+    private void storeManifest(BuildManifest manifest, List<File> outputs) {
+        try {
+            for (File output : outputs) {
+                addOutput(manifest, output);
+                File sourceMap = new File(output.getPath() + ".map");
+                if (sourceMap.isFile()) {
+                    addOutput(manifest, sourceMap);
+                }
+            }
+            manifest.store(getManifestFile());
+        } catch (IOException e) {
+            log.warn("Failed to store the build manifest, the files will be processed again in the next build.", e);
+        }
+    }
+
+    private void addOutput(BuildManifest manifest, File output) throws IOException {
+        manifest.addOutput(output);
+        File gzipFile = GzipCompressor.getGzipFile(output);
+        if (gzipCompressor != null && gzipFile.isFile()) {
+            manifest.addOutput(gzipFile);
+        }
+    }
+
+    /**
+     * Gets the key identifying this task across builds.
+     *
+     * @return the path of the file produced by the merge step
+     */
+    String getKey() {
+        return new File(targetDir, mergedFilename).getPath();
+    }
+
+    /**
+     * Gets the key of the task that would be created with the given target directory and output file name.
+     *
+     * @param webappTargetDir web resources target directory
+     * @param outputDir       directory to write the final file
+     * @param outputFilename  the output file name
+     * @return the path of the file produced by the merge step
+     * @see #getKey()
+     */
+    static String getKey(String webappTargetDir, String outputDir, String outputFilename) {
+        return new File(new File(webappTargetDir + File.separator + outputDir), outputFilename).getPath();
+    }
+
+    /**
+     * Gets the directory containing the source files.
+     *
+     * @return the source directory
+     */
+    File getSourceDir() {
+        return sourceDir;
+    }
+
+    /**
+     * Gets the source files, in merge order, followed by the source files of the bundles added as chunks.
+     *
+     * @return the source files
+     */
+    List<File> getFiles() {
+        if (chunks.isEmpty()) {
+            return Collections.unmodifiableList(files);
+        }
+
+        List<File> allFiles = new ArrayList<>(files);
+        for (ProcessFilesTask chunk : chunks) {
+            allFiles.addAll(chunk.files);
+        }
+        return Collections.unmodifiableList(allFiles);
+    }
+
+    /**
+     * Compiles another bundle together with this one, as a chunk of a single compilation. The other bundle is then
+     * processed by this task and its own task is not run. Chunks are added in dependency order, after the bundles they
+     * depend on.
+     *
+     * @param chunk        the task of the other bundle
+     * @param dependencies the names of the bundles the other bundle depends on
+     */
+    void addChunk(ProcessFilesTask chunk, List<String> dependencies) {
+        chunk.dependencies = dependencies;
+        chunks.add(chunk);
+    }
+
+    /**
+     * Checks if source files are looked up with include patterns, in which case files added to the source directory may
+     * belong to this task.
+     *
+     * @return {@code true} if include patterns are configured
+     */
+    boolean hasSourceIncludes() {
+        return !sourceIncludesEmpty;
+    }
+
+    /**
+     * Estimates how long this task takes to run, based on the size of its source files and on the cost of the selected
+     * engine. Used to start the most expensive tasks first when no timing from a previous build is available.
+     *
+     * @return the estimated duration in milliseconds
+     */
+    long getEstimatedCost() {
+        long size = 0;
+        long minifiedSize = 0;
+        for (File file : getFiles()) {
+            if (isDetectingMinifiedFiles() && minifiedSourceDetector.matches(file)) {
+                minifiedSize += file.length();
+            } else {
+                size += file.length();
+            }
+        }
+
+        return (long) (size / 1024d * (skipMinify ? MERGE_COST_PER_KILOBYTE : getMinifyCostPerKilobyte())
+                + minifiedSize / 1024d * MERGE_COST_PER_KILOBYTE);
+    }
+
+    /**
+     * Gets how long the last run of this task took.
+     *
+     * @return the duration in milliseconds, or {@code -1} if the task has not run yet
+     */
+    long getDuration() {
+        return duration;
+    }
+
+    /**
+     * Writes the log messages kept so far, e.g. the warnings of a task that was cancelled before it could run.
+     */
+    void flushLog() {
+        log.flush();
+        for (ProcessFilesTask chunk : chunks) {
+            chunk.flushLog();
+        }
+    }
+
+    /**
+     * Gets the rough cost, in milliseconds per kilobyte of input, of minifying files with the selected engine.
+     *
+     * @return the minify cost per kilobyte
+     */
+    double getMinifyCostPerKilobyte() {
+        return engine.getCostPerKilobyte(getType());
+    }
+
+    /**
+     * Gets the type of the files processed by this task.
+     *
+     * @return {@link MinifierEngine.Capability#JAVASCRIPT} or {@link MinifierEngine.Capability#CSS}
+     */
+    abstract MinifierEngine.Capability getType();
+
+    private String getFileType() {
+        return (getType() == MinifierEngine.Capability.CSS) ? "CSS" : "JavaScript";
+    }
+
+    /**
+     * Runs the tasks created for each source file when the merge step is skipped. Inside a fork/join pool the tasks
+     * are forked so that idle workers can steal them; otherwise they run one after the other. Either way, log messages
+     * are flushed in source file order.
+     *
+     * @param fileTasks the tasks to run
+     * @throws IOException when the minify step of any of the files fails
+     */
+    private void invokeAll(List<MinifyFileTask> fileTasks) throws IOException {
+        if (!ForkJoinTask.inForkJoinPool()) {
+            for (MinifyFileTask fileTask : fileTasks) {
+                try {
+                    fileTask.call();
+                } finally {
+                    fileTask.log.flush();
+                }
+            }
+            return;
+        }
+
+        List<ForkJoinTask<Object>> forkedTasks = new ArrayList<>(fileTasks.size());
+        for (MinifyFileTask fileTask : fileTasks) {
+            forkedTasks.add(ForkJoinTask.adapt(fileTask).fork());
+        }
+
+        Throwable failure = null;
+        for (int i = 0; i < fileTasks.size(); i++) {
+            try {
+                forkedTasks.get(i).get();
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause();
+                    // No point in minifying the remaining files once one of them failed
+                    for (ForkJoinTask<Object> forkedTask : forkedTasks) {
+                        forkedTask.cancel(true);
+                    }
+                }
+            } catch (CancellationException e) {
+                // Cancelled after a previous failure
+            } catch (InterruptedException e) {
+                for (ForkJoinTask<Object> forkedTask : forkedTasks) {
+                    forkedTask.cancel(true);
+                }
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while minifying source files.");
+            } finally {
+                fileTasks.get(i).log.flush();
+            }
+        }
+
+        if (failure instanceof IOException) {
+            throw (IOException) failure;
+        } else if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        } else if (failure instanceof Error) {
+            throw (Error) failure;
+        } else if (failure != null) {
+            throw new RuntimeException(failure);
+        }
+    }
+
+    /**
+     * Stops the task when the build has been aborted, e.g. because another task failed.
+     *
+     * @throws InterruptedIOException when the current thread has been interrupted
+     */
+    protected void checkInterrupted() throws InterruptedIOException {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new InterruptedIOException("Task interrupted.");
+        }
+    }
+
+    /**
+     * Merges a list of source files. Create missing parent directories if needed. The merged file is left untouched
+     * when its content did not change.
      *
      * @param mergedFile output file resulting from the merged step
      * @throws IOException when the merge step fails
@@ -200,12 +739,29 @@ public abstract class ProcessFilesTask implements Callable<Object> {
             throw new RuntimeException("Unable to create target directory for: " + mergedFile.getParentFile());
         }
 
-        try (InputStream sequence = new SequenceInputStream(new SourceFilesEnumeration(log, files, verbose));
+        try (AtomicOutputFile output = new AtomicOutputFile(mergedFile)) {
+            log.info("Creating the merged file [" + (verbose ? mergedFile.getPath() : mergedFile.getName()) + "].");
+            if (isByteLevelMergeSafe()) {
+                mergeBytes(output.getTempFile());
+            } else {
+                mergeChars(output.getTempFile());
+            }
+            output.commit();
+        }
+    }
+
+    /**
+     * Merges the list of source files, decoding and encoding them again with the configured charset.
+     *
+     * @param mergedFile output file resulting from the merged step
+     * @throws IOException when the merge step fails
+     */
+    private void mergeChars(File mergedFile) throws IOException {
+        try (InputStream sequence = new SequenceInputStream(new SourceFilesEnumeration(log, files, verbose,
+                cacheConfig.getSourceCache()));
              OutputStream out = new FileOutputStream(mergedFile);
              InputStreamReader sequenceReader = new InputStreamReader(sequence, charset);
              OutputStreamWriter outWriter = new OutputStreamWriter(out, charset)) {
-            log.info("Creating the merged file [" + (verbose ? mergedFile.getPath() : mergedFile.getName()) + "].");
-
             IOUtil.copy(sequenceReader, outWriter, bufferSize);
         } catch (IOException e) {
             log.error("Failed to concatenate files.", e);
@@ -214,38 +770,391 @@ public abstract class ProcessFilesTask implements Callable<Object> {
     }
 
     /**
-     * Minifies a source file. Create missing parent directories if needed.
+     * Checks if source files can be concatenated byte by byte. Since they are read and written with the same charset,
+     * decoding and encoding them again does not change their content, except for UTF-16 and UTF-32 charsets whose
+     * encoders write a single byte order mark for the whole merged file.
      *
-     * @param mergedFile   input file resulting from the merged step
-     * @param minifiedFile output file resulting from the minify step
-     * @throws IOException when the minify step fails
+     * @return {@code true} if the content does not need to be transcoded
+     */
+    private boolean isByteLevelMergeSafe() {
+        return !charset.name().contains("UTF-16") && !charset.name().contains("UTF-32");
+    }
+
+    /**
+     * Merges the list of source files without decoding them, letting the operating system copy each file into the
+     * merged one.
+     *
+     * @param mergedFile output file resulting from the merged step
+     * @throws IOException when the merge step fails
+     */
+    private void mergeBytes(File mergedFile) throws IOException {
+        for (File file : files) {
+            log.info("Processing source file [" + (verbose ? file.getPath() : file.getName()) + "].");
+        }
+
+        try (FileChannel out = FileChannel.open(mergedFile.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            SourceCache sourceCache = cacheConfig.getSourceCache();
+            for (File file : files) {
+                ByteBuffer content = (sourceCache != null) ? sourceCache.get(file) : null;
+                if (content != null) {
+                    while (content.hasRemaining()) {
+                        out.write(content);
+                    }
+                    continue;
+                }
+
+                try (FileChannel in = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                    long size = in.size();
+                    long position = 0;
+                    try {
+                        while (position < size) {
+                            position += in.transferTo(position, size - position, out);
+                        }
+                    } catch (IOException e) {
+                        // transferTo may fall back on memory mapping, which some file systems do not support
+                        log.debug("Failed to transfer [" + file.getName() + "], copying it instead.", e);
+                        in.position(position);
+                        ByteBuffer buffer = ByteBuffer.allocate(bufferSize);
+                        while (in.read(buffer) >= 0) {
+                            buffer.flip();
+                            while (buffer.hasRemaining()) {
+                                out.write(buffer);
+                            }
+                            buffer.clear();
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            log.error("Failed to concatenate files.", e);
+            throw e;
+        }
+    }
+
+    /**
+     * Merges the list of source files in memory. Source files that are already minified get a segment of their own,
+     * the consecutive files between them share one. Each source file is read once: when they are needed, the segments
+     * keep the content of their files.
+     *
+     * @param segments filled with the parts of the merged content to minify or to copy as is
+     * @return the merged content
+     * @throws IOException when the merge step fails
+     */
+    protected byte[] merge(List<Segment> segments) throws IOException {
+        long size = 0;
+        for (File file : files) {
+            size += file.length();
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream((int) Math.min(size, Integer.MAX_VALUE - 8));
+
+        if (!isDetectingMinifiedFiles()
+                && !engine.getCapabilities().contains(MinifierEngine.Capability.MULTIPLE_INPUTS)) {
+            try (InputStream sequence = new SequenceInputStream(new SourceFilesEnumeration(log, files, verbose,
+                    cacheConfig.getSourceCache()))) {
+                IOUtil.copy(sequence, out, bufferSize);
+            } catch (IOException e) {
+                log.error("Failed to concatenate files.", e);
+                throw e;
+            }
+            Segment segment = new Segment(0, false);
+            for (File file : files) {
+                segment.add(file, null);
+            }
+            segment.length = out.size();
+            segments.add(segment);
+            return out.toByteArray();
+        }
+
+        for (File file : files) {
+            log.info("Processing source file [" + (verbose ? file.getPath() : file.getName()) + "].");
+            byte[] content;
+            try {
+                content = readSourceFile(file);
+            } catch (IOException e) {
+                log.error("Failed to concatenate files.", e);
+                throw e;
+            }
+
+            addToSegments(segments, file, content, isMinified(file, content), out.size(), content.length);
+            out.write(content, 0, content.length);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Splits the source files in segments without merging them, for engines that read each source file on their own.
+     * Source files are only read when their name does not tell if they are already minified, their content is then
+     * kept by the segment so that they are not read again.
+     *
+     * @return the segments, whose offset and length are meaningless
+     * @throws IOException when a source file cannot be read
+     */
+    private List<Segment> split() throws IOException {
+        List<Segment> segments = new ArrayList<>();
+        for (File file : files) {
+            log.info("Processing source file [" + (verbose ? file.getPath() : file.getName()) + "].");
+            byte[] content = null;
+            boolean minified = false;
+            if (isDetectingMinifiedFiles()) {
+                minified = minifiedSourceDetector.matches(file);
+                if (!minified) {
+                    content = readSourceFile(file);
+                    minified = isMinified(file, content);
+                }
+            }
+            addToSegments(segments, file, content, minified, 0, 0);
+        }
+        return segments;
+    }
+
+    /**
+     * Adds a source file to the last segment, or to a new one when either the file or the last segment is already
+     * minified.
+     */
+    private static void addToSegments(List<Segment> segments, File file, byte[] content, boolean minified, int offset,
+                                      int length) {
+        Segment segment = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+        if (segment == null || minified || segment.minified) {
+            segment = new Segment(offset, minified);
+            segments.add(segment);
+        }
+        segment.add(file, content);
+        segment.length += length;
+    }
+
+    /**
+     * Checks if already minified source files are copied as is. They are not when the engine optimizes the files of a
+     * bundle as a whole, as the parts of the bundle would no longer be compiled together, unless each source file is
+     * minified on its own anyway.
+     *
+     * @return {@code true} if the source files are looked at
+     */
+    private boolean isDetectingMinifiedFiles() {
+        return minifiedSourceDetector != null
+                && (skipMerge || !engine.getCapabilities().contains(MinifierEngine.Capability.WHOLE_PROGRAM));
+    }
+
+    /**
+     * Checks if a source file is already minified. The content is only looked at when the charset encodes whitespace
+     * as in ASCII.
+     *
+     * @param file    the source file
+     * @param content the file content
+     * @return {@code true} if the file is copied as is instead of being minified
+     */
+    private boolean isMinified(File file, byte[] content) {
+        if (!isDetectingMinifiedFiles()) {
+            return false;
+        }
+        return isByteLevelMergeSafe() ? minifiedSourceDetector.isMinified(file, content)
+                : minifiedSourceDetector.matches(file);
+    }
+
+    /**
+     * Reads a source file, from the source cache if it is shared by several bundles.
+     *
+     * @param file the source file
+     * @return the file content
+     * @throws IOException when the file cannot be read
      */
-    abstract void minify(File mergedFile, File minifiedFile) throws IOException;
+    private byte[] readSourceFile(File file) throws IOException {
+        SourceCache sourceCache = cacheConfig.getSourceCache();
+        ByteBuffer content = (sourceCache != null) ? sourceCache.get(file) : null;
+        if (content == null) {
+            return Files.readAllBytes(file.toPath());
+        }
+
+        byte[] bytes = new byte[content.remaining()];
+        content.get(bytes);
+        return bytes;
+    }
 
     /**
-     * Logs compression gains.
+     * Minifies a source file with the selected engine. Create missing parent directories if needed. The minified file
+     * and its source map are left untouched when their content did not change.<br/>
+     * Segments of already minified source files are copied as is, each segment being put on its own line. Since the
+     * lines of a source map would be relative to the segment it was created for, the whole content is minified at once
+     * when the engine creates one.<br/>
+     * Engines with the {@link MinifierEngine.Capability#MULTIPLE_INPUTS} capability are handed the source files of
+     * each segment instead of its content.
      *
-     * @param mergedFile   input file resulting from the merged step
+     * @param log          log used for the messages of this file
+     * @param mergedFile   input file resulting from the merged step, which may not have been written
+     * @param content      content of the input file, encoded with the configured charset, or {@code null} if the
+     *                     source files were not merged
+     * @param segments     parts of the content to minify or to copy as is
      * @param minifiedFile output file resulting from the minify step
+     * @throws IOException when the minify step fails
      */
-    void logCompressionGains(File mergedFile, File minifiedFile) {
-        try {
-            File temp = File.createTempFile(minifiedFile.getName(), ".gz");
+    protected void minify(Log log, File mergedFile, byte[] content, List<Segment> segments, File minifiedFile)
+            throws IOException {
+        if (!minifiedFile.getParentFile().exists() && !minifiedFile.getParentFile().mkdirs()) {
+            throw new RuntimeException("Unable to create target directory for: " + minifiedFile.getParentFile());
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream((content != null) ? content.length : bufferSize);
+        try (OutputStreamWriter writer = new OutputStreamWriter(out, charset)) {
+            log.info("Creating the minified file [" + (verbose ? minifiedFile.getPath() : minifiedFile.getName())
+                    + "].");
+
+            MinifyRequest request = null;
+            for (int i = 0; i < segments.size(); i++) {
+                Segment segment = segments.get(i);
+                if (i > 0) {
+                    writer.write('\n');
+                }
+
+                if (segment.minified) {
+                    File source = segment.files.get(0);
+                    log.info("Copying the already minified source file ["
+                            + (verbose ? source.getPath() : source.getName()) + "].");
+                    writer.flush();
+                    if (content != null) {
+                        out.write(content, segment.offset, segment.length);
+                    } else if (segment.contents.get(0) != null) {
+                        out.write(segment.contents.get(0));
+                    } else {
+                        out.write(readSourceFile(source));
+                    }
+                    continue;
+                }
 
-            try (InputStream in = new FileInputStream(minifiedFile);
-                 OutputStream out = new FileOutputStream(temp);
-                 GZIPOutputStream outGZIP = new GZIPOutputStream(out)) {
-                IOUtil.copy(in, outGZIP, bufferSize);
+                request = new MinifyRequest(getType(), log, mergedFile.getName(), minifiedFile);
+                minify(request, content, segment, writer);
+                if (request.getSourceMap() != null && segments.size() > 1) {
+                    log.debug("Source maps are created for the whole merged file, minifying it at once.");
+                    Segment whole = new Segment(0, false);
+                    for (Segment part : segments) {
+                        for (int j = 0; j < part.files.size(); j++) {
+                            whole.add(part.files.get(j), part.contents.get(j));
+                        }
+                    }
+                    whole.length = (content != null) ? content.length : 0;
+                    minify(log, mergedFile, content, Collections.singletonList(whole), minifiedFile);
+                    return;
+                }
             }
 
-            log.info("Uncompressed size: " + mergedFile.length() + " bytes.");
-            log.info("Compressed size: " + minifiedFile.length() + " bytes minified (" + temp.length()
-                    + " bytes gzipped).");
+            if (request != null && request.getSourceMap() != null) {
+                File sourceMapFile = request.getSourceMapFile();
+                log.info("Creating the minified file map ["
+                        + (verbose ? sourceMapFile.getPath() : sourceMapFile.getName()) + "].");
+
+                flushSourceMap(log, sourceMapFile, request.getSourceMap());
+
+                writer.append(System.getProperty("line.separator"));
+                writer.append("//# sourceMappingURL=").append(sourceMapFile.getName());
+            }
 
-            temp.deleteOnExit();
+            writer.flush();
+            AtomicOutputFile.write(minifiedFile, out.toByteArray());
         } catch (IOException e) {
-            log.debug("Failed to calculate the gzipped file size.", e);
+            log.error("Failed to compress the " + getFileType() + " file ["
+                    + (verbose ? mergedFile.getPath() : mergedFile.getName()) + "].", e);
+            throw e;
+        }
+    }
+
+    /**
+     * Minifies a segment with the selected engine.
+     *
+     * @param request the minify request, which receives the source map if the engine creates one
+     * @param content content of the input file, encoded with the configured charset, or {@code null} if the source
+     *                files were not merged
+     * @param segment the segment to minify
+     * @param writer  where to write the minified segment
+     * @throws IOException when the engine fails
+     */
+    private void minify(MinifyRequest request, byte[] content, Segment segment, Writer writer) throws IOException {
+        Set<MinifierEngine.Capability> capabilities = engine.getCapabilities();
+        if (capabilities.contains(MinifierEngine.Capability.MULTIPLE_INPUTS)) {
+            List<MinifyInput> inputs = new ArrayList<>();
+            for (int i = 0; i < segment.files.size(); i++) {
+                inputs.add(new SourceInput(segment.files.get(i), segment.contents.get(i)));
+            }
+            request.setInputs(inputs);
+        }
+
+        // Streaming engines decode the content as they read it, instead of working on a copy of it as a string
+        try (Reader reader = (!request.getInputs().isEmpty()) ? new StringReader("")
+                : capabilities.contains(MinifierEngine.Capability.STREAMING)
+                ? new InputStreamReader(new ByteArrayInputStream(content, segment.offset, segment.length), charset)
+                : new StringReader(new String(content, segment.offset, segment.length, charset))) {
+            // Engines such as Closure run in their own thread: while they are not interruptible, this task stops
+            // waiting for them as soon as the build is aborted
+            checkInterrupted();
+            if (capabilities.contains(MinifierEngine.Capability.THREAD_SAFE)) {
+                engine.minify(request, reader, writer);
+            } else {
+                synchronized (engine) {
+                    engine.minify(request, reader, writer);
+                }
+            }
+            checkInterrupted();
+        }
+    }
+
+    private void flushSourceMap(Log log, File sourceMapOutputFile, String sourceMap) {
+        try {
+            AtomicOutputFile.write(sourceMapOutputFile, sourceMap.getBytes(Charset.defaultCharset()));
+        } catch (IOException e) {
+            log.error("Failed to write the JavaScript Source Map file ["
+                    + (verbose ? sourceMapOutputFile.getPath() : sourceMapOutputFile.getName()) + "].", e);
+        }
+    }
+
+    /**
+     * Logs compression gains and adds them to the result of this task. The gzipped size is computed later, off the
+     * path of the task.
+     *
+     * @param log              log used for the messages of this file
+     * @param uncompressedSize size of the input file resulting from the merged step
+     * @param minifiedFile     output file resulting from the minify step
+     * @return the sizes added to the result
+     */
+    private BundleResult.FileResult logCompressionGains(Log log, long uncompressedSize, File minifiedFile) {
+        long minifiedSize = minifiedFile.length();
+        log.info("Uncompressed size: " + uncompressedSize + " bytes.");
+        log.info("Compressed size: " + minifiedSize + " bytes minified.");
+
+        BundleResult.FileResult fileResult = new BundleResult.FileResult(minifiedFile, uncompressedSize, minifiedSize);
+        result.addFile(fileResult);
+        return fileResult;
+    }
+
+    /**
+     * Writes the gzip compressed copies of an output file and of its source map, when enabled. The size of the
+     * compressed output file is recorded, so that it does not need to be computed again for the statistics.
+     *
+     * @param log        log used for the messages of this file
+     * @param outputFile file written to the target directory
+     * @param fileResult the sizes of the output file, may be {@code null}
+     * @throws IOException when a compressed copy cannot be written
+     */
+    private void precompress(Log log, File outputFile, BundleResult.FileResult fileResult) throws IOException {
+        if (gzipCompressor == null) {
+            return;
         }
+
+        long gzippedSize = precompress(log, outputFile);
+        if (gzippedSize >= 0 && fileResult != null) {
+            fileResult.setGzippedSize(gzippedSize);
+        }
+        File sourceMap = new File(outputFile.getPath() + ".map");
+        if (sourceMap.isFile()) {
+            precompress(log, sourceMap);
+        }
+    }
+
+    private long precompress(Log log, File file) throws IOException {
+        long gzippedSize = gzipCompressor.compress(file);
+        if (gzippedSize >= 0) {
+            File gzipFile = GzipCompressor.getGzipFile(file);
+            log.info("Creating the gzipped file [" + (verbose ? gzipFile.getPath() : gzipFile.getName()) + "].");
+        }
+
+        return gzippedSize;
     }
 
     /**
@@ -276,6 +1185,7 @@ public abstract class ProcessFilesTask implements Callable<Object> {
             }
             log.debug("Adding source file [" + (verbose ? sourceFile.getPath() : sourceFile.getName()) + "].");
             files.add(sourceFile);
+            fileIndex.add(sourceFile);
         } else {
             throw new FileNotFoundException("The source file ["
                     + (verbose ? sourceFile.getPath() : sourceFile.getName()) + "] does not exist.");
@@ -285,25 +1195,16 @@ public abstract class ProcessFilesTask implements Callable<Object> {
     /**
      * Returns the files to copy. Default exclusions are used when the excludes list is empty.
      *
+     * @param scanner  finds the files matching the patterns in a snapshot of the source directory
      * @param includes list of source files to include
      * @param excludes list of source files to exclude
      * @return the files to copy
      */
-    private List<File> getFilesToInclude(List<String> includes, List<String> excludes) {
+    private List<File> getFilesToInclude(SourceScanner scanner, List<String> includes, List<String> excludes) {
         List<File> includedFiles = new ArrayList<>();
 
         if (includes != null && !includes.isEmpty()) {
-            DirectoryScanner scanner = new DirectoryScanner();
-
-            scanner.setIncludes(includes.toArray(new String[includes.size()]));
-            scanner.setExcludes(excludes.toArray(new String[excludes.size()]));
-            scanner.addDefaultExcludes();
-            scanner.setBasedir(sourceDir);
-            scanner.scan();
-
-            for (String includedFilename : scanner.getIncludedFiles()) {
-                includedFiles.add(new File(sourceDir, includedFilename));
-            }
+            includedFiles = scanner.scan(sourceDir, includes, excludes);
 
             Collections.sort(includedFiles, new Comparator<File>() {
                 @Override
@@ -315,4 +1216,96 @@ public abstract class ProcessFilesTask implements Callable<Object> {
 
         return includedFiles;
     }
+
+    /**
+     * Minifies a single source file when the merge step is skipped, keeping its log messages until they are flushed by
+     * {@link #invokeAll(List)}.
+     */
+    private class MinifyFileTask implements Callable<Object> {
+
+        private final BufferedLog log = new BufferedLog(ProcessFilesTask.this.log);
+
+        private final File sourceFile;
+
+        private final File minifiedFile;
+
+        private final String fingerprint;
+
+        MinifyFileTask(File sourceFile, File minifiedFile, String fingerprint) {
+            this.sourceFile = sourceFile;
+            this.minifiedFile = minifiedFile;
+            this.fingerprint = fingerprint;
+        }
+
+        @Override
+        public Object call() throws IOException {
+            checkInterrupted();
+            byte[] content = readSourceFile(sourceFile);
+            List<Segment> segments = new ArrayList<>();
+            addToSegments(segments, sourceFile, content, isMinified(sourceFile, content), 0, content.length);
+            minifyCached(log, sourceFile, content, segments, minifiedFile, fingerprint);
+            return null;
+        }
+    }
+
+    /**
+     * Consecutive source files minified together, or a single already minified source file copied as is.
+     */
+    static final class Segment {
+
+        private final List<File> files = new ArrayList<>();
+
+        /**
+         * Content of each source file, or {@code null} when it was not read yet.
+         */
+        private final List<byte[]> contents = new ArrayList<>();
+
+        private final boolean minified;
+
+        /**
+         * Start of the segment in the merged content, if the source files were merged.
+         */
+        private final int offset;
+
+        private int length;
+
+        Segment(int offset, boolean minified) {
+            this.offset = offset;
+            this.minified = minified;
+        }
+
+        void add(File file, byte[] content) {
+            files.add(file);
+            contents.add(content);
+        }
+    }
+
+    /**
+     * Source file handed on its own to the engine, read when the engine asks for it.
+     */
+    private class SourceInput implements MinifyInput {
+
+        private final File file;
+
+        private final byte[] content;
+
+        /**
+         * @param file    the source file
+         * @param content the content of the source file, or {@code null} to read it
+         */
+        SourceInput(File file, byte[] content) {
+            this.file = file;
+            this.content = content;
+        }
+
+        @Override
+        public String getName() {
+            return sourceDir.toURI().relativize(file.toURI()).getPath();
+        }
+
+        @Override
+        public String getContent() throws IOException {
+            return new String((content != null) ? content : readSourceFile(file), charset);
+        }
+    }
 }
@@ -18,29 +18,22 @@
  */
 package com.samaxes.maven.minify.plugin;
 
-import com.google.common.collect.Lists;
-import com.google.javascript.jscomp.*;
-import com.google.javascript.jscomp.Compiler;
-import com.samaxes.maven.minify.common.ClosureConfig;
-import com.samaxes.maven.minify.common.JavaScriptErrorReporter;
-import com.samaxes.maven.minify.common.YuiConfig;
-import com.samaxes.maven.minify.plugin.MinifyMojo.Engine;
-import com.yahoo.platform.yui.compressor.JavaScriptCompressor;
+import com.samaxes.maven.minify.common.CacheConfig;
+import com.samaxes.maven.minify.common.GzipCompressor;
+import com.samaxes.maven.minify.common.MinifiedSourceDetector;
+import com.samaxes.maven.minify.common.SourceScanner;
+import com.samaxes.maven.minify.engine.MinifierEngine;
 import org.apache.maven.plugin.logging.Log;
 
-import java.io.*;
+import java.io.FileNotFoundException;
 import java.nio.charset.Charset;
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 
 /**
  * Task for merging and compressing JavaScript files.
  */
 public class ProcessJSFilesTask extends ProcessFilesTask {
 
-    private final ClosureConfig closureConfig;
-
     /**
      * Task constructor.
      *
@@ -53,6 +46,7 @@ public class ProcessJSFilesTask extends ProcessFilesTask {
      * @param nosuffix        whether to use a suffix for the minified file name or not
      * @param skipMerge       whether to skip the merge step or not
      * @param skipMinify      whether to skip the minify step or not
+     * @param keepMergedFiles whether to write the merged file next to the minified one or not
      * @param webappSourceDir web resources source directory
      * @param webappTargetDir web resources target directory
      * @param inputDir        directory containing source files
@@ -62,134 +56,33 @@ public class ProcessJSFilesTask extends ProcessFilesTask {
      * @param outputDir       directory to write the final file
      * @param outputFilename  the output file name
      * @param engine          minify processor engine selected
-     * @param yuiConfig       YUI Compressor configuration
-     * @param closureConfig   Google Closure Compiler configuration
+     * @param cacheConfig     incremental build configuration
+     * @param gzipCompressor  writes compressed copies of the output files, may be {@code null}
+     * @param sourceScanner   finds the source files matching include patterns
+     * @param minifiedSources finds the source files that are copied as is instead of being minified, may be
+     *                        {@code null}
      * @throws FileNotFoundException when the given source file does not exist
      */
     public ProcessJSFilesTask(Log log, boolean verbose, Integer bufferSize, Charset charset, String suffix,
-                              boolean nosuffix, boolean skipMerge, boolean skipMinify, String webappSourceDir,
-                              String webappTargetDir, String inputDir, List<String> sourceFiles,
+                              boolean nosuffix, boolean skipMerge, boolean skipMinify, boolean keepMergedFiles,
+                              String webappSourceDir, String webappTargetDir, String inputDir, List<String> sourceFiles,
                               List<String> sourceIncludes, List<String> sourceExcludes, String outputDir,
-                              String outputFilename, Engine engine, YuiConfig yuiConfig, ClosureConfig closureConfig)
+                              String outputFilename, MinifierEngine engine, CacheConfig cacheConfig,
+                              GzipCompressor gzipCompressor, SourceScanner sourceScanner,
+                              MinifiedSourceDetector minifiedSources)
             throws FileNotFoundException {
-        super(log, verbose, bufferSize, charset, suffix, nosuffix, skipMerge, skipMinify, webappSourceDir,
-                webappTargetDir, inputDir, sourceFiles, sourceIncludes, sourceExcludes, outputDir, outputFilename,
-                engine, yuiConfig);
-
-        this.closureConfig = closureConfig;
+        super(log, verbose, bufferSize, charset, suffix, nosuffix, skipMerge, skipMinify, keepMergedFiles,
+                webappSourceDir, webappTargetDir, inputDir, sourceFiles, sourceIncludes, sourceExcludes, outputDir,
+                outputFilename, engine, cacheConfig, gzipCompressor, sourceScanner, minifiedSources);
     }
 
     /**
-     * Minifies a JavaScript file. Create missing parent directories if needed.
+     * Gets the type of the files processed by this task.
      *
-     * @param mergedFile   input file resulting from the merged step
-     * @param minifiedFile output file resulting from the minify step
-     * @throws IOException when the minify step fails
+     * @return {@link MinifierEngine.Capability#JAVASCRIPT}
      */
     @Override
-    protected void minify(File mergedFile, File minifiedFile) throws IOException {
-        if (!minifiedFile.getParentFile().exists() && !minifiedFile.getParentFile().mkdirs()) {
-            throw new RuntimeException("Unable to create target directory for: " + minifiedFile.getParentFile());
-        }
-
-        try (InputStream in = new FileInputStream(mergedFile);
-             OutputStream out = new FileOutputStream(minifiedFile);
-             InputStreamReader reader = new InputStreamReader(in, charset);
-             OutputStreamWriter writer = new OutputStreamWriter(out, charset)) {
-            log.info("Creating the minified file [" + (verbose ? minifiedFile.getPath() : minifiedFile.getName()) + "].");
-
-            switch (engine) {
-                case CLOSURE:
-                    log.debug("Using Google Closure Compiler engine.");
-
-                    CompilerOptions options = new CompilerOptions();
-                    closureConfig.getCompilationLevel().setOptionsForCompilationLevel(options);
-                    options.setOutputCharset(charset);
-                    options.setLanguageIn(closureConfig.getLanguageIn());
-                    options.setLanguageOut(closureConfig.getLanguageOut());
-                    options.setDependencyOptions(closureConfig.getDependencyOptions());
-                    options.setColorizeErrorOutput(closureConfig.getColorizeErrorOutput());
-                    options.setAngularPass(closureConfig.getAngularPass());
-                    options.setExtraAnnotationNames(closureConfig.getExtraAnnotations());
-                    options.setDefineReplacements(closureConfig.getDefineReplacements());
-                    // options.setRewritePolyfills(closureConfig.getLanguageIn().isEs6OrHigher());
-
-                    File sourceMapResult = new File(minifiedFile.getPath() + ".map");
-                    if (closureConfig.getSourceMapFormat() != null) {
-                        options.setSourceMapFormat(closureConfig.getSourceMapFormat());
-                        options.setSourceMapOutputPath(sourceMapResult.getPath());
-                        // options.setSourceMapLocationMappings(Lists.newArrayList(new
-                        // SourceMap.LocationMapping(sourceDir.getPath() + File.separator, "")));
-                    }
-
-                    if (closureConfig.getWarningLevels() != null) {
-                        for (Map.Entry<DiagnosticGroup, CheckLevel> warningLevel : closureConfig.getWarningLevels().entrySet()) {
-                            options.setWarningLevel(warningLevel.getKey(), warningLevel.getValue());
-                        }
-                    }
-
-                    SourceFile input = SourceFile.fromInputStream(mergedFile.getName(), in, charset);
-                    List<SourceFile> externs = new ArrayList<>();
-                    externs.addAll(CommandLineRunner.getBuiltinExterns(closureConfig.getEnvironment()));
-                    externs.addAll(closureConfig.getExterns());
-
-                    Compiler compiler = new Compiler();
-                    compiler.compile(externs, Lists.newArrayList(input), options);
-
-                    // Check for errors.
-                    JSError[] errors = compiler.getErrors();
-                    if (errors.length > 0) {
-                        StringBuilder msg = new StringBuilder("JSCompiler errors\n");
-                        MessageFormatter formatter = new LightweightMessageFormatter(compiler);
-                        for (JSError e : errors) {
-                            msg.append(formatter.formatError(e));
-                        }
-                        throw new RuntimeException(msg.toString());
-                    }
-
-                    writer.append(compiler.toSource());
-
-                    if (closureConfig.getSourceMapFormat() != null) {
-                        log.info("Creating the minified file map ["
-                                + (verbose ? sourceMapResult.getPath() : sourceMapResult.getName()) + "].");
-
-                        if (sourceMapResult.createNewFile()) {
-                            flushSourceMap(sourceMapResult, minifiedFile.getName(), compiler.getSourceMap());
-
-                            writer.append(System.getProperty("line.separator"));
-                            writer.append("//# sourceMappingURL=").append(sourceMapResult.getName());
-                        }
-                    }
-
-                    break;
-                case YUI:
-                    log.debug("Using YUI Compressor engine.");
-
-                    JavaScriptCompressor compressor = new JavaScriptCompressor(reader, new JavaScriptErrorReporter(log,
-                            mergedFile.getName()));
-                    compressor.compress(writer, yuiConfig.getLineBreak(), yuiConfig.isMunge(), verbose,
-                            yuiConfig.isPreserveSemicolons(), yuiConfig.isDisableOptimizations());
-                    break;
-                default:
-                    log.warn("JavaScript engine not supported.");
-                    break;
-            }
-        } catch (IOException e) {
-            log.error(
-                    "Failed to compress the JavaScript file ["
-                            + (verbose ? mergedFile.getPath() : mergedFile.getName()) + "].", e);
-            throw e;
-        }
-
-        logCompressionGains(mergedFile, minifiedFile);
-    }
-
-    private void flushSourceMap(File sourceMapOutputFile, String minifyFileName, SourceMap sourceMap) {
-        try (FileWriter out = new FileWriter(sourceMapOutputFile)) {
-            sourceMap.appendTo(out, minifyFileName);
-        } catch (IOException e) {
-            log.error("Failed to write the JavaScript Source Map file ["
-                    + (verbose ? sourceMapOutputFile.getPath() : sourceMapOutputFile.getName()) + "].", e);
-        }
+    MinifierEngine.Capability getType() {
+        return MinifierEngine.Capability.JAVASCRIPT;
     }
 }
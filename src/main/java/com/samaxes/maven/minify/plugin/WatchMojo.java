@@ -0,0 +1,243 @@
+/*
+ * Minify Maven Plugin
+ * https://github.com/samaxes/minify-maven-plugin
+ *
+ * Copyright (c) 2009 samaxes.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.samaxes.maven.minify.plugin;
+
+import com.samaxes.maven.minify.common.AtomicOutputFile;
+import com.samaxes.maven.minify.common.CacheConfig;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Goal for combining and minifying CSS and JavaScript files every time a source file changes. It takes the same
+ * configuration as the {@code minify} goal, processes all the bundles once, then keeps watching the source directories
+ * and processes again only the bundles affected by each change, until the build is interrupted. A change of one of
+ * the {@code closureExterns} files processes all the bundles again. The files written by the build, in
+ * {@code webappTargetDir} and {@code workDir}, are not watched.<br/>
+ * Changes to the plugin configuration, including the {@code bundleConfiguration} file, require restarting the goal.
+ *
+ * @since 2.0.0
+ */
+@Mojo(name = "watch", threadSafe = true)
+public class WatchMojo extends MinifyMojo {
+
+    /**
+     * Time to wait, in milliseconds, for further changes after a source file changes. A burst of changes, such as
+     * saving several files at once, triggers a single build.
+     *
+     * @since 2.0.0
+     */
+    @Parameter(property = "watchDebounce", defaultValue = "100")
+    private long watchDebounce;
+
+    private final List<Path> outputDirs = new ArrayList<>();
+
+    /**
+     * Processes all the bundles, then processes again the bundles affected by each change of the source directories.
+     *
+     * @param cacheConfig the incremental build and cache configuration
+     * @throws MojoExecutionException when the source directories cannot be watched or the first build fails
+     * @throws MojoFailureException   when the configuration is invalid
+     */
+    @Override
+    protected void process(CacheConfig cacheConfig) throws MojoExecutionException, MojoFailureException {
+        List<ProcessFilesTask> tasks = createTasks(cacheConfig, null);
+        runTasks(new ArrayList<>(tasks), cacheConfig);
+
+        // Changes written by the build itself must not trigger another build, unless a source directory is in there
+        for (File outputDir : getOutputDirs()) {
+            Path path = outputDir.toPath().toAbsolutePath().normalize();
+            boolean containsSources = false;
+            for (ProcessFilesTask task : tasks) {
+                containsSources |= task.getSourceDir().toPath().toAbsolutePath().normalize().startsWith(path);
+            }
+            if (!containsSources) {
+                outputDirs.add(path);
+            }
+        }
+
+        try (WatchService watchService = FileSystems.getDefault().newWatchService()) {
+            Map<WatchKey, Path> watchedDirs = new HashMap<>();
+            for (ProcessFilesTask task : tasks) {
+                register(watchService, watchedDirs, task.getSourceDir().toPath(), null);
+            }
+            Set<File> externFiles = new HashSet<>();
+            for (File externFile : getExternFiles()) {
+                externFile = externFile.toPath().toAbsolutePath().normalize().toFile();
+                externFiles.add(externFile);
+                registerParent(watchService, watchedDirs, externFile.toPath());
+            }
+            getLog().info("Watching " + watchedDirs.size() + " directories for changes...");
+
+            while (true) {
+                Set<File> changedFiles = new HashSet<>();
+                boolean processAll = awaitChanges(watchService, watchedDirs, changedFiles);
+                long start = System.nanoTime();
+
+                try {
+                    if (!Collections.disjoint(changedFiles, externFiles)) {
+                        // The engines hold the externs, and the fingerprint of every bundle depends on them
+                        getLog().info("Closure externs changed, processing all the bundles.");
+                        resetEngines();
+                        processAll = true;
+                    }
+                    tasks = createTasks(cacheConfig, processAll ? null : changedFiles);
+                    for (ProcessFilesTask task : tasks) {
+                        register(watchService, watchedDirs, task.getSourceDir().toPath(), null);
+                    }
+
+                    if (!tasks.isEmpty()) {
+                        runTasks(tasks, cacheConfig);
+                        getLog().info("Processed " + tasks.size() + " bundles in "
+                                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms.");
+                    }
+                } catch (MojoExecutionException | MojoFailureException e) {
+                    getLog().error(e.getMessage(), e);
+                }
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException("Failed to watch the source directories.", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Waits for a change, then collects changes until none happens for {@code watchDebounce} milliseconds.
+     *
+     * @param watchService the watch service
+     * @param watchedDirs  the watched directories by watch key
+     * @param changedFiles the created, modified and deleted files
+     * @return {@code true} if some changes were lost, in which case all the bundles must be processed again
+     * @throws IOException          when a new directory cannot be watched
+     * @throws InterruptedException when the goal is interrupted while waiting
+     */
+    private boolean awaitChanges(WatchService watchService, Map<WatchKey, Path> watchedDirs, Set<File> changedFiles)
+            throws IOException, InterruptedException {
+        boolean overflow = false;
+        WatchKey key = watchService.take();
+        do {
+            Path dir = watchedDirs.get(key);
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == OVERFLOW || dir == null) {
+                    overflow = true;
+                    continue;
+                }
+
+                Path path = dir.resolve((Path) event.context());
+                if (isOutput(path)) {
+                    continue;
+                }
+                changedFiles.add(path.toFile());
+                if (event.kind() == ENTRY_CREATE && Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                    // Files may have been created in the new directory before it is watched
+                    register(watchService, watchedDirs, path, changedFiles);
+                }
+            }
+            if (!key.reset()) {
+                watchedDirs.remove(key);
+            }
+            key = watchService.poll(watchDebounce, TimeUnit.MILLISECONDS);
+        } while (key != null);
+
+        return overflow;
+    }
+
+    /**
+     * Checks if a file is written by the build: a file of an output directory or the temporary file of an output file.
+     *
+     * @param path the file to check
+     * @return {@code true} if changes to the file must be ignored
+     */
+    private boolean isOutput(Path path) {
+        if (AtomicOutputFile.isTempFile(path.toFile())) {
+            return true;
+        }
+        for (Path outputDir : outputDirs) {
+            if (path.startsWith(outputDir)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Watches the directory of a file, without its sub-directories, unless already watched.
+     *
+     * @param watchService the watch service
+     * @param watchedDirs  the watched directories by watch key
+     * @param file         the file to watch
+     * @throws IOException when the directory cannot be watched
+     */
+    private void registerParent(WatchService watchService, Map<WatchKey, Path> watchedDirs, Path file)
+            throws IOException {
+        Path dir = file.getParent();
+        if (dir != null && Files.isDirectory(dir) && !watchedDirs.containsValue(dir)) {
+            watchedDirs.put(dir.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY), dir);
+        }
+    }
+
+    /**
+     * Watches a directory and all its sub-directories, except the output directories, unless already watched.
+     *
+     * @param watchService the watch service
+     * @param watchedDirs  the watched directories by watch key
+     * @param dir          the directory to watch
+     * @param foundFiles   where to add the files found in the directory, may be {@code null}
+     * @throws IOException when the directory cannot be watched
+     */
+    private void register(final WatchService watchService, final Map<WatchKey, Path> watchedDirs, Path dir,
+                          final Set<File> foundFiles) throws IOException {
+        dir = dir.toAbsolutePath().normalize();
+        if (!Files.isDirectory(dir) || watchedDirs.containsValue(dir)) {
+            return;
+        }
+
+        Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                if (isOutput(dir)) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                if (!watchedDirs.containsValue(dir)) {
+                    watchedDirs.put(dir.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY), dir);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (foundFiles != null && !isOutput(file)) {
+                    foundFiles.add(file.toFile());
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
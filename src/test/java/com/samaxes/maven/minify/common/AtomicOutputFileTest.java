@@ -0,0 +1,78 @@
+/*
+ * Minify Maven Plugin
+ * https://github.com/samaxes/minify-maven-plugin
+ *
+ * Copyright (c) 2009 samaxes.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.samaxes.maven.minify.common;
+
+import com.google.common.io.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class AtomicOutputFileTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void writesNewFilesAndTheirDirectories() throws IOException {
+        File file = new File(folder.getRoot(), "js/script.min.js");
+
+        assertTrue(AtomicOutputFile.write(file, bytes("var a=1;")));
+        assertEquals("var a=1;", Files.toString(file, StandardCharsets.UTF_8));
+        assertArrayEquals(new String[]{"script.min.js"}, file.getParentFile().list());
+    }
+
+    @Test
+    public void leavesUnchangedFilesUntouched() throws IOException {
+        File file = folder.newFile("script.min.js");
+        Files.write(bytes("var a=1;"), file);
+        long lastModified = file.lastModified() - 10000;
+        assertTrue(file.setLastModified(lastModified));
+
+        assertFalse(AtomicOutputFile.write(file, bytes("var a=1;")));
+        assertEquals(lastModified, file.lastModified());
+
+        assertTrue(AtomicOutputFile.write(file, bytes("var a=2;")));
+        assertEquals("var a=2;", Files.toString(file, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void keepsTheFileWhenNotCommitted() throws IOException {
+        File file = folder.newFile("script.min.js");
+        Files.write(bytes("var a=1;"), file);
+
+        try (AtomicOutputFile output = new AtomicOutputFile(file)) {
+            assertTrue(AtomicOutputFile.isTempFile(output.getTempFile()));
+            assertFalse(AtomicOutputFile.isTempFile(file));
+            Files.write(bytes("var a="), output.getTempFile());
+        }
+
+        assertEquals("var a=1;", Files.toString(file, StandardCharsets.UTF_8));
+        assertArrayEquals(new String[]{"script.min.js"}, folder.getRoot().list());
+    }
+
+    private static byte[] bytes(String content) {
+        return content.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Minify Maven Plugin
+ * https://github.com/samaxes/minify-maven-plugin
+ *
+ * Copyright (c) 2009 samaxes.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.samaxes.maven.minify.common;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BufferedLogTest {
+
+    /**
+     * Log keeping the messages written to it.
+     */
+    private static class RecordingLog extends SystemStreamLog {
+
+        private final boolean debugEnabled;
+
+        private final List<String> messages = Collections.synchronizedList(new ArrayList<String>());
+
+        RecordingLog(boolean debugEnabled) {
+            this.debugEnabled = debugEnabled;
+        }
+
+        @Override
+        public boolean isDebugEnabled() {
+            return debugEnabled;
+        }
+
+        @Override
+        public void debug(CharSequence content) {
+            messages.add("debug " + content);
+        }
+
+        @Override
+        public void info(CharSequence content) {
+            messages.add("info " + content);
+        }
+
+        @Override
+        public void warn(CharSequence content) {
+            messages.add("warn " + content);
+        }
+
+        @Override
+        public void error(CharSequence content, Throwable error) {
+            messages.add("error " + content + ": " + error.getMessage());
+        }
+    }
+
+    @Test
+    public void writesMessagesInOrderWhenFlushed() {
+        RecordingLog target = new RecordingLog(true);
+        BufferedLog log = new BufferedLog(target);
+        log.info("first");
+        log.debug("second");
+        log.warn("third");
+        log.error("fourth", new IllegalStateException("cause"));
+        assertTrue(target.messages.isEmpty());
+
+        log.flush();
+        assertEquals(Arrays.asList("info first", "debug second", "warn third", "error fourth: cause"),
+                target.messages);
+
+        // Flushed messages are not written again
+        log.flush();
+        assertEquals(4, target.messages.size());
+    }
+
+    @Test
+    public void skipsDebugMessagesWhenDisabled() {
+        RecordingLog target = new RecordingLog(false);
+        BufferedLog log = new BufferedLog(target);
+        log.debug("hidden");
+        log.info("shown");
+        log.flush();
+
+        assertEquals(Collections.singletonList("info shown"), target.messages);
+    }
+
+    @Test
+    public void flushesConcurrentTasksAsBlocks() throws InterruptedException {
+        final RecordingLog target = new RecordingLog(false);
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            final String task = "task" + i;
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    BufferedLog log = new BufferedLog(target);
+                    for (int line = 0; line < 500; line++) {
+                        log.info(task);
+                    }
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    log.flush();
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(2000, target.messages.size());
+        for (int block = 0; block < 4; block++) {
+            List<String> messages = target.messages.subList(block * 500, (block + 1) * 500);
+            assertEquals(500, Collections.frequency(messages, messages.get(0)));
+        }
+    }
+}
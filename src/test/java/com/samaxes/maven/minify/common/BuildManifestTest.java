@@ -0,0 +1,144 @@
+/*
+ * Minify Maven Plugin
+ * https://github.com/samaxes/minify-maven-plugin
+ *
+ * Copyright (c) 2009 samaxes.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.samaxes.maven.minify.common;
+
+import com.google.common.io.Files;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class BuildManifestTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File source;
+
+    private File output;
+
+    private File manifestFile;
+
+    @Before
+    public void setUp() throws IOException {
+        source = write("source.js", "var a = 1;");
+        output = write("source.min.js", "var a=1;");
+        manifestFile = new File(folder.getRoot(), "manifest/source.min.js.json");
+    }
+
+    @Test
+    public void upToDateWhenNothingChanged() throws IOException {
+        build("options").store(manifestFile);
+
+        BuildManifest previous = BuildManifest.load(manifestFile);
+        assertNotNull(previous);
+        assertTrue(previous.isUpToDate(current("options", previous)));
+    }
+
+    @Test
+    public void invalidatedBySourceChange() throws IOException {
+        build("options").store(manifestFile);
+        write("source.js", "var a = 2;");
+        source.setLastModified(source.lastModified() + 2000);
+
+        BuildManifest previous = BuildManifest.load(manifestFile);
+        assertFalse(previous.isUpToDate(current("options", previous)));
+    }
+
+    @Test
+    public void invalidatedByConfigurationChange() throws IOException {
+        build("options").store(manifestFile);
+
+        BuildManifest previous = BuildManifest.load(manifestFile);
+        assertFalse(previous.isUpToDate(current("other options", previous)));
+    }
+
+    @Test
+    public void invalidatedBySourceListChange() throws IOException {
+        build("options").store(manifestFile);
+        File other = write("other.js", "var b = 1;");
+
+        BuildManifest previous = BuildManifest.load(manifestFile);
+        BuildManifest current = current("options", previous);
+        current.addInput(other, previous);
+        assertFalse(previous.isUpToDate(current));
+    }
+
+    @Test
+    public void invalidatedByOutputChange() throws IOException {
+        build("options").store(manifestFile);
+        write("source.min.js", "var a=3;");
+        output.setLastModified(output.lastModified() + 2000);
+
+        BuildManifest previous = BuildManifest.load(manifestFile);
+        assertFalse(previous.isUpToDate(current("options", previous)));
+    }
+
+    @Test
+    public void invalidatedByOutputDeletion() throws IOException {
+        build("options").store(manifestFile);
+        assertTrue(output.delete());
+
+        BuildManifest previous = BuildManifest.load(manifestFile);
+        assertFalse(previous.isUpToDate(current("options", previous)));
+    }
+
+    @Test
+    public void upToDateWhenOnlyTheModificationTimeChanged() throws IOException {
+        build("options").store(manifestFile);
+        source.setLastModified(source.lastModified() + 2000);
+        output.setLastModified(output.lastModified() + 2000);
+
+        BuildManifest previous = BuildManifest.load(manifestFile);
+        assertTrue(previous.isUpToDate(current("options", previous)));
+    }
+
+    @Test
+    public void loadIgnoresMissingOrInvalidManifests() throws IOException {
+        assertNull(BuildManifest.load(manifestFile));
+
+        assertTrue(manifestFile.getParentFile().mkdirs());
+        Files.write("not a manifest", manifestFile, StandardCharsets.UTF_8);
+        assertNull(BuildManifest.load(manifestFile));
+    }
+
+    private BuildManifest build(String options) throws IOException {
+        BuildManifest manifest = current(options, null);
+        manifest.addOutput(output);
+        return manifest;
+    }
+
+    private BuildManifest current(String options, BuildManifest previous) throws IOException {
+        BuildManifest manifest = new BuildManifest(BuildManifest.digest(options));
+        manifest.addInput(source, previous);
+        return manifest;
+    }
+
+    private File write(String name, String content) throws IOException {
+        File file = new File(folder.getRoot(), name);
+        Files.write(content, file, StandardCharsets.UTF_8);
+        return file;
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Minify Maven Plugin
+ * https://github.com/samaxes/minify-maven-plugin
+ *
+ * Copyright (c) 2009 samaxes.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.samaxes.maven.minify.common;
+
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.*;
+
+public class GzipCompressorTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void roundTrip() throws IOException {
+        File file = write("small.js", content(10 * 1024));
+
+        long size = new GzipCompressor(0, false).compress(file);
+
+        assertEquals(GzipCompressor.getGzipFile(file).length(), size);
+        assertArrayEquals(Files.toByteArray(file), gunzip(GzipCompressor.getGzipFile(file)));
+    }
+
+    @Test
+    public void roundTripWithMaxCompression() throws IOException {
+        File file = write("small.js", content(200 * 1024));
+
+        new GzipCompressor(0, true).compress(file);
+
+        assertArrayEquals(Files.toByteArray(file), gunzip(GzipCompressor.getGzipFile(file)));
+    }
+
+    @Test
+    public void roundTripOfBlocksCompressedInParallel() throws Exception {
+        final File file = write("large.js", content(3 * 1024 * 1024 + 12345));
+        File sequentialFile = write("sequential.js", Files.toByteArray(file));
+        long sequentialSize = new GzipCompressor(0, false).compress(sequentialFile);
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            pool.submit(new Callable<Long>() {
+                @Override
+                public Long call() throws IOException {
+                    return new GzipCompressor(0, false).compress(file);
+                }
+            }).get();
+        } finally {
+            pool.shutdown();
+        }
+
+        File gzipFile = GzipCompressor.getGzipFile(file);
+        assertArrayEquals(Files.toByteArray(file), gunzip(gzipFile));
+        // Priming each block with the end of the previous one keeps the ratio of a sequential compression
+        assertTrue(gzipFile.length() < sequentialSize * 1.01);
+    }
+
+    @Test
+    public void skipsSmallFilesAndDeletesTheirStaleCopy() throws IOException {
+        File file = write("tiny.js", "var a=1;".getBytes(StandardCharsets.UTF_8));
+        File gzipFile = GzipCompressor.getGzipFile(file);
+        Files.write("stale".getBytes(StandardCharsets.UTF_8), gzipFile);
+
+        assertEquals(-1, new GzipCompressor(1024, false).compress(file));
+        assertFalse(gzipFile.exists());
+    }
+
+    /**
+     * Builds compressible but not trivially repetitive content.
+     */
+    private static byte[] content(int size) {
+        String[] words = {"function", "var", "return", "samaxesJS", "document", "createElement", "(", ")", "{", "}",
+                ";", "\n", "0", "1", "length", "appendChild", "=", "+", "if", "else"};
+        Random random = new Random(42);
+        StringBuilder content = new StringBuilder(size);
+        while (content.length() < size) {
+            content.append(words[random.nextInt(words.length)]).append(' ');
+        }
+        content.setLength(size);
+        return content.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private File write(String name, byte[] content) throws IOException {
+        File file = new File(folder.getRoot(), name);
+        Files.write(content, file);
+        return file;
+    }
+
+    private static byte[] gunzip(File file) throws IOException {
+        try (InputStream in = new GZIPInputStream(new FileInputStream(file))) {
+            return ByteStreams.toByteArray(in);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Minify Maven Plugin
+ * https://github.com/samaxes/minify-maven-plugin
+ *
+ * Copyright (c) 2009 samaxes.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.samaxes.maven.minify.common;
+
+import com.google.common.io.Resources;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MinifiedSourceDetectorTest {
+
+    private static final byte[] EMPTY = new byte[0];
+
+    @Test
+    public void matchesFileNames() {
+        MinifiedSourceDetector detector = new MinifiedSourceDetector(Arrays.asList("*.min.js", "*-min.css"), false);
+
+        assertTrue(detector.matches(new File("vendor/jquery.min.js")));
+        assertTrue(detector.isMinified(new File("style-min.css"), EMPTY));
+        assertFalse(detector.matches(new File("min.js/app.js")));
+        assertFalse(detector.isMinified(new File("app.js"), EMPTY));
+    }
+
+    @Test
+    public void detectsMinifiedContent() throws IOException {
+        MinifiedSourceDetector detector = new MinifiedSourceDetector(Collections.<String>emptyList(), true);
+        File file = new File("vendor.js");
+
+        assertTrue(detector.isMinified(file, minified(2048)));
+        assertFalse(detector.isMinified(file, Resources.toByteArray(
+                Resources.getResource("streaming/samaxesjs.toc.js"))));
+        // Too small to tell
+        assertFalse(detector.isMinified(file, minified(256)));
+    }
+
+    @Test
+    public void readsContentOnlyWhenEnabled() {
+        MinifiedSourceDetector detector = new MinifiedSourceDetector(Collections.<String>emptyList(), false);
+
+        assertFalse(detector.isMinified(new File("vendor.js"), minified(2048)));
+    }
+
+    /**
+     * Builds content with long lines and no whitespace, as minifiers output.
+     */
+    private static byte[] minified(int size) {
+        StringBuilder content = new StringBuilder(size);
+        for (int i = 0; content.length() < size; i++) {
+            content.append("var a").append(i).append("=function(b){return b+").append(i).append("};");
+            if (i % 50 == 49) {
+                content.append('\n');
+            }
+        }
+        content.setLength(size);
+        return content.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
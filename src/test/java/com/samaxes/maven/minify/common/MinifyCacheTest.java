@@ -0,0 +1,155 @@
+/*
+ * Minify Maven Plugin
+ * https://github.com/samaxes/minify-maven-plugin
+ *
+ * Copyright (c) 2009 samaxes.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.samaxes.maven.minify.common;
+
+import com.google.common.io.Files;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class MinifyCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private MinifyCache cache;
+
+    private File source;
+
+    private File minified;
+
+    @Before
+    public void setUp() throws IOException {
+        cache = new MinifyCache(folder.newFolder("cache"));
+        source = write("source.js", "var a = 1;");
+        minified = write("source.min.js", "var a=1;");
+    }
+
+    @Test
+    public void missThenHit() throws IOException {
+        String key = key("options");
+        File restored = new File(folder.getRoot(), "restored/source.min.js");
+
+        assertFalse(cache.restore(key, source.length(), restored));
+        assertFalse(restored.exists());
+
+        cache.store(key, minified);
+        assertTrue(cache.restore(key, source.length(), restored));
+        assertEquals("var a=1;", read(restored));
+
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(source.length(), cache.getSavedBytes());
+    }
+
+    @Test
+    public void keyDependsOnContentAndOptions() throws IOException {
+        String key = key("options");
+        assertEquals(key, key("options"));
+        assertNotEquals(key, key("other options"));
+
+        write("source.js", "var a = 2;");
+        assertNotEquals(key, key("options"));
+    }
+
+    @Test
+    public void storesTheSourceMapWithTheEntry() throws IOException {
+        write("source.min.js.map", "{\"version\":3}");
+        String key = key("options");
+        cache.store(key, minified);
+
+        File restored = new File(folder.getRoot(), "restored/source.min.js");
+        assertTrue(cache.restore(key, source.length(), restored));
+        assertEquals("{\"version\":3}", read(new File(restored.getPath() + ".map")));
+    }
+
+    @Test
+    public void publishLeavesNoTemporaryFile() throws IOException {
+        String key = key("options");
+        cache.store(key, minified);
+        cache.store(key, minified);
+
+        assertArrayEquals(new String[]{key}, entry(key).getParentFile().list());
+    }
+
+    @Test
+    public void trimEvictsTheLeastRecentlyUsedEntries() throws IOException {
+        long now = System.currentTimeMillis();
+        String[] keys = new String[3];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = key("options " + i);
+            cache.store(keys[i], minified);
+            entry(keys[i]).setLastModified(now - (3 - i) * 60000L);
+        }
+        // A hit makes the oldest entry the most recently used one
+        assertTrue(cache.restore(keys[0], source.length(), new File(folder.getRoot(), "restored.min.js")));
+
+        assertEquals(0, cache.trim(3 * minified.length()));
+        assertEquals(1, cache.trim(2 * minified.length()));
+        assertTrue(entry(keys[0]).isFile());
+        assertFalse(entry(keys[1]).exists());
+        assertTrue(entry(keys[2]).isFile());
+
+        assertEquals(2, cache.trim(0));
+        assertFalse(entry(keys[0]).exists());
+        assertFalse(entry(keys[2]).exists());
+    }
+
+    @Test
+    public void trimRemovesStaleTemporaryFiles() throws IOException {
+        String key = key("options");
+        cache.store(key, minified);
+        File bucket = entry(key).getParentFile();
+        File stale = new File(bucket, key + "123.tmp");
+        File recent = new File(bucket, key + "456.tmp");
+        Files.write("partial", stale, StandardCharsets.UTF_8);
+        Files.write("partial", recent, StandardCharsets.UTF_8);
+        stale.setLastModified(System.currentTimeMillis() - 2 * 3600000L);
+
+        assertEquals(0, cache.trim(Long.MAX_VALUE));
+        assertFalse(stale.exists());
+        assertTrue(recent.exists());
+        assertTrue(entry(key).isFile());
+    }
+
+    private File entry(String key) {
+        return new File(folder.getRoot(), "cache/" + key.substring(0, 2) + "/" + key);
+    }
+
+    private String key(String fingerprint) throws IOException {
+        return MinifyCache.key(source, Files.toByteArray(source), minified, fingerprint);
+    }
+
+    private File write(String name, String content) throws IOException {
+        File file = new File(folder.getRoot(), name);
+        Files.write(content, file, StandardCharsets.UTF_8);
+        return file;
+    }
+
+    private static String read(File file) throws IOException {
+        return Files.toString(file, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Minify Maven Plugin
+ * https://github.com/samaxes/minify-maven-plugin
+ *
+ * Copyright (c) 2009 samaxes.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.samaxes.maven.minify.common;
+
+import com.google.common.io.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class SourceCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void readsSharedFilesOnce() throws IOException {
+        File shared = write("shared.js", "var shared = 1;");
+        File single = write("single.js", "var single = 1;");
+        SourceCache cache = new SourceCache(1024, false);
+        cache.retain(Arrays.asList(shared, single, shared, shared));
+
+        assertNull(cache.get(single));
+        assertEquals("var shared = 1;", read(cache.get(shared)));
+        assertEquals(0, cache.getHits());
+
+        // The file changed on disk, the cached content must not be used anymore
+        write("shared.js", "var shared = 22;");
+        assertTrue(shared.setLastModified(shared.lastModified() + 2000));
+        assertEquals("var shared = 22;", read(cache.get(shared)));
+        assertEquals(0, cache.getHits());
+
+        assertEquals("var shared = 22;", read(cache.get(shared)));
+        assertEquals(1, cache.getHits());
+        assertEquals(shared.length(), cache.getSavedBytes());
+
+        // Each bundle got the file, it is no longer referenced
+        assertNull(cache.get(shared));
+    }
+
+    @Test
+    public void countsTheReferencesOfEachExecution() throws IOException {
+        File shared = write("shared.js", "var shared = 1;");
+        SourceCache cache = new SourceCache(1024, false);
+        cache.retain(Arrays.asList(shared, shared));
+        assertNotNull(cache.get(shared));
+
+        // A new execution reading the file once still gets the content cached by the previous one, then drops it
+        cache.retain(Collections.singletonList(shared));
+        assertNotNull(cache.get(shared));
+        assertEquals(1, cache.getHits());
+        cache.retain(Collections.singletonList(shared));
+        assertNull(cache.get(shared));
+
+        // Files no longer listed are dropped
+        cache.retain(Arrays.asList(shared, shared));
+        assertNotNull(cache.get(shared));
+        cache.retain(Collections.<File>emptyList());
+        cache.retain(Arrays.asList(shared, shared));
+        assertNotNull(cache.get(shared));
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    public void evictsTheLeastRecentlyUsedEntries() throws IOException {
+        File first = write("first.js", "var first = 1;");
+        File second = write("second.js", "var second = 1;");
+        SourceCache cache = new SourceCache(20, false);
+        cache.retain(Arrays.asList(first, first, second, second));
+
+        assertNotNull(cache.get(first));
+        assertNotNull(cache.get(second));
+        // Evicted to make room for the second file, the last bundle reading it reads it from disk
+        assertNull(cache.get(first));
+        assertEquals("var second = 1;", read(cache.get(second)));
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    public void skipsFilesLargerThanTheCache() throws IOException {
+        File large = write("large.js", "var large = 1;");
+        SourceCache cache = new SourceCache(4, false);
+        cache.retain(Arrays.asList(large, large));
+
+        assertNull(cache.get(large));
+        assertNull(cache.get(large));
+    }
+
+    @Test
+    public void keepsLargeEntriesOffHeap() throws IOException {
+        char[] content = new char[SourceFilesEnumeration.POOLED_BUFFER_SIZE + 1];
+        Arrays.fill(content, 'a');
+        File large = write("large.js", new String(content));
+        SourceCache cache = new SourceCache(1024 * 1024, true);
+        cache.retain(Arrays.asList(large, large));
+
+        ByteBuffer buffer = cache.get(large);
+        assertTrue(buffer.isDirect());
+        assertTrue(buffer.isReadOnly());
+        assertEquals(content.length, buffer.remaining());
+    }
+
+    private File write(String name, String content) throws IOException {
+        File file = new File(folder.getRoot(), name);
+        Files.write(content, file, StandardCharsets.UTF_8);
+        return file;
+    }
+
+    private static String read(ByteBuffer buffer) {
+        return StandardCharsets.UTF_8.decode(buffer).toString();
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Minify Maven Plugin
+ * https://github.com/samaxes/minify-maven-plugin
+ *
+ * Copyright (c) 2009 samaxes.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.samaxes.maven.minify.common;
+
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+
+public class SourceFilesEnumerationTest {
+
+    private static final int BUFFER_SIZE = SourceFilesEnumeration.POOLED_BUFFER_SIZE;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void readsFilesOfAnySize() throws IOException {
+        List<File> files = new ArrayList<>();
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        int[] sizes = {0, 1, BUFFER_SIZE - 1, BUFFER_SIZE, BUFFER_SIZE + 1, 3 * BUFFER_SIZE + 17};
+        for (int i = 0; i < sizes.length; i++) {
+            byte[] content = content(sizes[i], i);
+            files.add(write("file" + i + ".js", content));
+            expected.write(content);
+        }
+
+        assertArrayEquals(expected.toByteArray(), read(files, null, false));
+        assertArrayEquals(expected.toByteArray(), read(files, null, true));
+    }
+
+    @Test
+    public void readsSharedFilesFromTheCache() throws IOException {
+        File shared = write("shared.js", content(BUFFER_SIZE + 100, 1));
+        File single = write("single.js", content(100, 2));
+        SourceCache cache = new SourceCache(1024 * 1024, true);
+        cache.retain(Arrays.asList(shared, single, shared));
+
+        byte[] first = read(Arrays.asList(shared, single), cache, false);
+        byte[] second = read(Arrays.asList(shared), cache, false);
+
+        assertArrayEquals(Files.toByteArray(shared), second);
+        assertArrayEquals(concat(Files.toByteArray(shared), Files.toByteArray(single)), first);
+    }
+
+    private static byte[] read(List<File> files, SourceCache cache, boolean byteByByte) throws IOException {
+        try (InputStream in = new SequenceInputStream(
+                new SourceFilesEnumeration(new SystemStreamLog(), files, false, cache))) {
+            if (!byteByByte) {
+                return ByteStreams.toByteArray(in);
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            for (int b = in.read(); b != -1; b = in.read()) {
+                out.write(b);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    private static byte[] content(int size, int seed) {
+        byte[] content = new byte[size];
+        new Random(seed).nextBytes(content);
+        return content;
+    }
+
+    private static byte[] concat(byte[] first, byte[] second) {
+        byte[] content = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, content, first.length, second.length);
+        return content;
+    }
+
+    private File write(String name, byte[] content) throws IOException {
+        File file = new File(folder.getRoot(), name);
+        Files.write(content, file);
+        return file;
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Minify Maven Plugin
+ * https://github.com/samaxes/minify-maven-plugin
+ *
+ * Copyright (c) 2009 samaxes.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.samaxes.maven.minify.common;
+
+import com.google.common.io.Files;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class SourceIndexTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File jsDir;
+
+    private File cssDir;
+
+    private SourceIndex index;
+
+    @Before
+    public void setUp() throws IOException {
+        jsDir = folder.newFolder("js");
+        cssDir = folder.newFolder("css");
+        index = new SourceIndex("config");
+        index.putBundle("common.js", jsDir, false, Arrays.asList(file(jsDir, "core.js"), file(jsDir, "util.js")));
+        index.putBundle("page.js", jsDir, false, Arrays.asList(file(jsDir, "core.js"), file(jsDir, "page.js")));
+        index.putBundle("style.css", cssDir, true, Collections.singletonList(file(cssDir, "base.css")));
+    }
+
+    @Test
+    public void findsTheBundlesOfChangedFiles() {
+        assertEquals(set("common.js", "page.js"), index.getAffectedBundles(Arrays.asList(new File(jsDir, "core.js"))));
+        assertEquals(set("page.js"), index.getAffectedBundles(Arrays.asList(new File(jsDir, "page.js"))));
+        assertEquals(set("common.js", "style.css"),
+                index.getAffectedBundles(Arrays.asList(new File(jsDir, "util.js"), new File(cssDir, "base.css"))));
+    }
+
+    @Test
+    public void findsTheScannedBundlesOfNewFiles() throws IOException {
+        File newCss = file(cssDir, "theme/dark.css");
+        File newJs = file(jsDir, "new.js");
+        File deleted = new File(cssDir, "deleted.css");
+
+        assertEquals(set("style.css"), index.getAffectedBundles(Arrays.asList(newCss, newJs, deleted)));
+        assertEquals(set(), index.getAffectedBundles(Arrays.asList(new File(folder.getRoot(), "other.css"))));
+    }
+
+    @Test
+    public void replacesTheFilesOfABundle() throws IOException {
+        index.putBundle("page.js", jsDir, false, Collections.singletonList(file(jsDir, "page.js")));
+
+        assertEquals(3, index.size());
+        assertEquals(set("common.js"), index.getAffectedBundles(Arrays.asList(new File(jsDir, "core.js"))));
+    }
+
+    @Test
+    public void loadsOnlyIndexesOfTheSameConfiguration() throws IOException {
+        File file = new File(folder.getRoot(), "index/sources.json");
+        index.store(file);
+
+        SourceIndex loaded = SourceIndex.load(file, "config");
+        assertNotNull(loaded);
+        assertEquals(3, loaded.size());
+        assertEquals(set("common.js", "page.js"), loaded.getAffectedBundles(Arrays.asList(new File(jsDir, "core.js"))));
+
+        assertNull(SourceIndex.load(file, "other config"));
+        assertNull(SourceIndex.load(new File(folder.getRoot(), "missing.json"), "config"));
+    }
+
+    private static File file(File dir, String path) throws IOException {
+        File file = new File(dir, path);
+        Files.createParentDirs(file);
+        Files.write(path, file, StandardCharsets.UTF_8);
+        return file;
+    }
+
+    private static Set<String> set(String... keys) {
+        return new HashSet<>(Arrays.asList(keys));
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Minify Maven Plugin
+ * https://github.com/samaxes/minify-maven-plugin
+ *
+ * Copyright (c) 2009 samaxes.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.samaxes.maven.minify.common;
+
+import com.google.common.io.Files;
+import org.codehaus.plexus.util.DirectoryScanner;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+public class SourceScannerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File baseDir;
+
+    @Before
+    public void setUp() throws IOException {
+        baseDir = folder.getRoot();
+        for (String path : new String[]{"css/base.css", "js/x.js", "js/a/y.js", "js/a/b/z.js", "js/a/b/q.txt",
+                "js/c/w.js", "js/c/w.js~", "js/CVS/Entries", "js/.git/config"}) {
+            write(path);
+        }
+    }
+
+    @Test
+    public void matchesLikeTheDirectoryScanner() {
+        List<List<String>> patterns = Arrays.asList(
+                Arrays.asList("**/*.js"), Collections.<String>emptyList(),
+                Arrays.asList("**"), Collections.<String>emptyList(),
+                Arrays.asList("js/**/*.js"), Arrays.asList("**/b/**"),
+                Arrays.asList("js/a/"), Collections.<String>emptyList(),
+                Arrays.asList("js\\*.js", "css/*.css"), Collections.<String>emptyList(),
+                Arrays.asList("%regex[js/a/.*\\.js]"), Collections.<String>emptyList(),
+                Arrays.asList("**/*.JS"), Collections.<String>emptyList());
+
+        SourceScanner scanner = new SourceScanner(null);
+        for (int i = 0; i < patterns.size(); i += 2) {
+            List<String> includes = patterns.get(i);
+            List<String> excludes = patterns.get(i + 1);
+            assertEquals(includes + " " + excludes, directoryScanner(baseDir, includes, excludes),
+                    sorted(scanner.scan(baseDir, includes, excludes)));
+        }
+    }
+
+    @Test
+    public void walksSubDirectoriesInParallel() {
+        ExecutorService executor = new ForkJoinPool(4);
+        try {
+            List<String> includes = Arrays.asList("**");
+            assertEquals(directoryScanner(baseDir, includes, Collections.<String>emptyList()),
+                    sorted(new SourceScanner(executor).scan(baseDir, includes, Collections.<String>emptyList())));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void walksEachDirectoryOnce() throws IOException {
+        SourceScanner scanner = new SourceScanner(null);
+        List<String> includes = Arrays.asList("**/*.js");
+        List<String> excludes = Collections.emptyList();
+        List<File> files = scanner.scan(baseDir, includes, excludes);
+
+        // Files created after the first scan are not seen by the same execution, even from a sub-directory
+        write("js/a/new.js");
+        assertEquals(files, scanner.scan(baseDir, includes, excludes));
+        assertEquals(Arrays.asList(new File(new File(baseDir, "js/a"), "b/z.js".replace('/', File.separatorChar)),
+                new File(new File(baseDir, "js/a"), "y.js")),
+                sorted(scanner.scan(new File(baseDir, "js/a"), includes, excludes)));
+
+        assertEquals(files.size() + 1, new SourceScanner(null).scan(baseDir, includes, excludes).size());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void failsOnMissingDirectory() {
+        new SourceScanner(null).scan(new File(baseDir, "missing"), Arrays.asList("**"),
+                Collections.<String>emptyList());
+    }
+
+    private static List<File> directoryScanner(File baseDir, List<String> includes, List<String> excludes) {
+        DirectoryScanner scanner = new DirectoryScanner();
+        scanner.setBasedir(baseDir);
+        scanner.setIncludes(includes.toArray(new String[includes.size()]));
+        scanner.setExcludes(excludes.toArray(new String[excludes.size()]));
+        scanner.addDefaultExcludes();
+        scanner.scan();
+
+        List<File> files = new ArrayList<>();
+        for (String path : scanner.getIncludedFiles()) {
+            files.add(new File(baseDir, path));
+        }
+        return sorted(files);
+    }
+
+    private static List<File> sorted(List<File> files) {
+        List<File> sorted = new ArrayList<>(files);
+        Collections.sort(sorted);
+        return sorted;
+    }
+
+    private void write(String path) throws IOException {
+        File file = new File(baseDir, path);
+        Files.createParentDirs(file);
+        Files.write(path, file, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Minify Maven Plugin
+ * https://github.com/samaxes/minify-maven-plugin
+ *
+ * Copyright (c) 2009 samaxes.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.samaxes.maven.minify.common;
+
+import com.google.common.io.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class TaskTimingsTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void storesTimingsForTheNextBuild() throws IOException {
+        File file = new File(folder.getRoot(), "minify/timings.properties");
+        TaskTimings timings = new TaskTimings(file);
+        timings.load();
+        assertNull(timings.get("js/script.js"));
+
+        timings.put("js/script.js", 1200);
+        timings.put("css/style.css", 30);
+        timings.store();
+
+        TaskTimings loaded = new TaskTimings(file);
+        loaded.load();
+        assertEquals(Long.valueOf(1200), loaded.get("js/script.js"));
+        assertEquals(Long.valueOf(30), loaded.get("css/style.css"));
+    }
+
+    @Test
+    public void ignoresCorruptedEntries() throws IOException {
+        File file = folder.newFile("timings.properties");
+        Files.write("js/script.js=12x\ncss/style.css=30\n", file, StandardCharsets.ISO_8859_1);
+
+        TaskTimings timings = new TaskTimings(file);
+        timings.load();
+        assertNull(timings.get("js/script.js"));
+        assertEquals(Long.valueOf(30), timings.get("css/style.css"));
+    }
+}
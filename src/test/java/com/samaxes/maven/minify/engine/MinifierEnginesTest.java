@@ -0,0 +1,147 @@
+/*
+ * Minify Maven Plugin
+ * https://github.com/samaxes/minify-maven-plugin
+ *
+ * Copyright (c) 2009 samaxes.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.samaxes.maven.minify.engine;
+
+import com.google.common.io.Files;
+import com.google.javascript.jscomp.*;
+import com.google.javascript.jscomp.CompilerOptions.LanguageMode;
+import com.samaxes.maven.minify.common.ClosureConfig;
+import com.samaxes.maven.minify.common.YuiConfig;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class MinifierEnginesTest {
+
+    /**
+     * Engine registered by the test, counting its initializations.
+     */
+    public static class CountingEngine implements MinifierEngine {
+
+        private int initializations;
+
+        @Override
+        public String getName() {
+            return "COUNTING";
+        }
+
+        @Override
+        public Set<Capability> getCapabilities() {
+            return Collections.unmodifiableSet(EnumSet.of(Capability.CSS));
+        }
+
+        @Override
+        public void init(EngineConfig config) {
+            initializations++;
+        }
+
+        @Override
+        public double getCostPerKilobyte(Capability type) {
+            return 0;
+        }
+
+        @Override
+        public void minify(MinifyRequest request, Reader input, Writer output) {
+        }
+    }
+
+    /**
+     * Engine registered by the test with the name of a built-in engine.
+     */
+    public static class ShadowingEngine extends CountingEngine {
+
+        @Override
+        public String getName() {
+            return "YUI";
+        }
+    }
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void findsTheBuiltInEngines() throws IOException {
+        MinifierEngines engines = new MinifierEngines(getClass().getClassLoader(), config());
+
+        assertTrue(engines.get("YUI", MinifierEngine.Capability.CSS) instanceof YuiEngine);
+        assertTrue(engines.get("YUI", MinifierEngine.Capability.JAVASCRIPT) instanceof YuiEngine);
+        assertTrue(engines.get("CLOSURE", MinifierEngine.Capability.JAVASCRIPT) instanceof ClosureEngine);
+        assertTrue(engines.get("STREAMING", MinifierEngine.Capability.CSS) instanceof StreamingEngine);
+    }
+
+    @Test
+    public void rejectsUnknownEngines() {
+        MinifierEngines engines = new MinifierEngines(getClass().getClassLoader(), config());
+        try {
+            engines.get("UGLIFY", MinifierEngine.Capability.JAVASCRIPT);
+            fail();
+        } catch (IllegalArgumentException | IOException e) {
+            assertEquals("Unsupported JavaScript engine [UGLIFY], available engines are [CLOSURE, STREAMING, YUI].",
+                    e.getMessage());
+        }
+        try {
+            engines.get("CLOSURE", MinifierEngine.Capability.CSS);
+            fail();
+        } catch (IllegalArgumentException | IOException e) {
+            assertEquals("Unsupported CSS engine [CLOSURE], available engines are [STREAMING, YUI].", e.getMessage());
+        }
+    }
+
+    @Test
+    public void loadsEnginesOfTheClassLoaderOnce() throws IOException {
+        File services = new File(folder.getRoot(), "META-INF/services/" + MinifierEngine.class.getName());
+        Files.createParentDirs(services);
+        Files.write(CountingEngine.class.getName() + "\n" + ShadowingEngine.class.getName() + "\n", services,
+                StandardCharsets.UTF_8);
+
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[]{folder.getRoot().toURI().toURL()},
+                getClass().getClassLoader())) {
+            MinifierEngines engines = new MinifierEngines(classLoader, config());
+
+            CountingEngine engine = (CountingEngine) engines.get("COUNTING", MinifierEngine.Capability.CSS);
+            assertSame(engine, engines.get("COUNTING", MinifierEngine.Capability.CSS));
+            assertEquals(1, engine.initializations);
+
+            // A built-in engine cannot be replaced
+            assertTrue(engines.get("YUI", MinifierEngine.Capability.CSS) instanceof YuiEngine);
+        }
+    }
+
+    private static EngineConfig config() {
+        return new EngineConfig(StandardCharsets.UTF_8, false, new YuiConfig(-1, true, false, false),
+                new ClosureConfig(LanguageMode.ECMASCRIPT6, LanguageMode.ECMASCRIPT3,
+                        CompilerOptions.Environment.BROWSER, CompilationLevel.SIMPLE_OPTIMIZATIONS,
+                        new DependencyOptions(), Collections.<SourceFile>emptyList(), false,
+                        Collections.<DiagnosticGroup, CheckLevel>emptyMap(), false, Collections.<String>emptyList(),
+                        Collections.<String, String>emptyMap()));
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Minify Maven Plugin
+ * https://github.com/samaxes/minify-maven-plugin
+ *
+ * Copyright (c) 2009 samaxes.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.samaxes.maven.minify.engine;
+
+import com.google.common.io.Resources;
+import com.yahoo.platform.yui.compressor.CssCompressor;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+
+public class StreamingCssMinifierTest {
+
+    private static final String[] FIXTURES = {"reset.css", "fonts.css", "base.css", "toc.css", "edge-cases.css"};
+
+    @Test
+    public void sameOutputAsYui() throws IOException {
+        for (String fixture : FIXTURES) {
+            String css = Resources.toString(Resources.getResource("streaming/" + fixture), StandardCharsets.UTF_8);
+            assertEquals(fixture, yui(css, -1), streaming(css, -1));
+        }
+    }
+
+    @Test
+    public void sameLineBreaksAsYui() throws IOException {
+        // YUI Compressor counts the length of quoted strings as the length of its placeholders, fixtures without
+        // strings get the same line breaks
+        for (String fixture : new String[]{"fonts.css", "toc.css"}) {
+            String css = Resources.toString(Resources.getResource("streaming/" + fixture), StandardCharsets.UTF_8);
+            assertEquals(fixture, yui(css, 0), streaming(css, 0));
+            assertEquals(fixture, yui(css, 80), streaming(css, 80));
+        }
+    }
+
+    @Test
+    public void shortensValues() throws IOException {
+        assertEquals("a{color:#fff;margin:0;padding:0 1px;border-color:#abc #aabbcd}",
+                streaming("a { color: #FFFFFF; margin: 0px 0em 0 0; padding: 0.0em 1px;"
+                        + " border-color: rgb(170,187,204) #AABBCD }", -1));
+    }
+
+    @Test
+    public void dropsEmptyRulesAndComments() throws IOException {
+        assertEquals("/*! kept */b{margin:0}", streaming("/*! kept */ a { /* dropped */ } b { margin: 0; }", -1));
+    }
+
+    @Test
+    public void movesCharsetBeforeLeadingComments() throws IOException {
+        assertEquals("@charset \"utf-8\";/*! kept */ a{b:c}",
+                streaming("/*! kept */\n@charset \"utf-8\";\na { b: c }", -1));
+        assertEquals("@charset \"utf-8\";a{b:c}", streaming("@charset \"utf-8\"; a { b: c } @charset \"latin1\";", -1));
+    }
+
+    private static String yui(String css, int lineBreak) throws IOException {
+        StringWriter output = new StringWriter();
+        new CssCompressor(new StringReader(css)).compress(output, lineBreak);
+        return output.toString();
+    }
+
+    private static String streaming(String css, int lineBreak) throws IOException {
+        StringWriter output = new StringWriter();
+        new StreamingCssMinifier(new StringReader(css), output, lineBreak).minify();
+        return output.toString();
+    }
+}
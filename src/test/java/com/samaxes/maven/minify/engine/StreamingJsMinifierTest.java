@@ -0,0 +1,113 @@
+/*
+ * Minify Maven Plugin
+ * https://github.com/samaxes/minify-maven-plugin
+ *
+ * Copyright (c) 2009 samaxes.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.samaxes.maven.minify.engine;
+
+import com.google.common.io.Resources;
+import com.yahoo.platform.yui.compressor.JavaScriptCompressor;
+import org.junit.Test;
+import org.mozilla.javascript.tools.ToolErrorReporter;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class StreamingJsMinifierTest {
+
+    private static final String[] FIXTURES = {"samaxesjs.core.js", "samaxesjs.toc.js", "edge-cases.js"};
+
+    /**
+     * Only comments and whitespace are removed: YUI Compressor gives the same result on the minified file as on the
+     * source file.
+     */
+    @Test
+    public void keepsTheTokensSeenByYui() throws IOException {
+        for (String fixture : FIXTURES) {
+            String js = Resources.toString(Resources.getResource("streaming/" + fixture), StandardCharsets.UTF_8);
+            String minified = streaming(js);
+            assertTrue(fixture, minified.length() < js.length());
+            assertEquals(fixture, yui(js), yui(minified));
+        }
+    }
+
+    @Test
+    public void removesCommentsAndWhitespace() throws IOException {
+        assertEquals("/*! license */\nvar a=1,b=[1,2];",
+                streaming("/*! license */\n// comment\nvar a = 1, /* comment */ b = [ 1, 2 ];\n"));
+    }
+
+    @Test
+    public void keepsLineBreaksForSemicolonInsertion() throws IOException {
+        assertEquals("var a=b\n++c\nreturn\na", streaming("var a = b\n++c\nreturn\n  a\n"));
+    }
+
+    @Test
+    public void keepsSpacesBetweenSigns() throws IOException {
+        assertEquals("a+ +b-(-c)+d++ +e- --f", streaming("a + +b - (-c) + d++ + e - --f"));
+    }
+
+    @Test
+    public void tellsRegularExpressionsFromDivisions() throws IOException {
+        assertEquals("a=b/c/d;e=/[/]\\//g.test(f);return/x/;g=(h)/i",
+                streaming("a = b / c / d; e = /[/]\\//g.test(f); return /x/; g = (h) / i"));
+    }
+
+    @Test
+    public void readsRegularExpressionsAfterControlStatementConditions() throws IOException {
+        assertEquals("if(ok)/ +x/.test(s)&&run();while(f(a))/ b/g.exec(c);for await(d of e)/ f/.test(d)",
+                streaming("if (ok) / +x/.test(s) && run();\nwhile (f(a)) / b/g.exec(c);\n"
+                        + "for await (d of e) / f/.test(d)"));
+        // A division after any other parenthesis
+        assertEquals("a=(b)/c/(d)", streaming("a = (b) / c/ (d)"));
+    }
+
+    @Test
+    public void keepsStringsAndTemplates() throws IOException {
+        assertEquals("a=\"x  // y\"+'z /* w */'+`v ${b+`u`} t`",
+                streaming("a = \"x  // y\" + 'z /* w */' + `v ${ b + `u` } t`"));
+    }
+
+    @Test
+    public void keepsLineAndParagraphSeparatorsInStrings() throws IOException {
+        assertEquals("a='x\u2028y'+\"z\u2029w\"+`v\u2028u`;b=1",
+                streaming("a = 'x\u2028y' + \"z\u2029w\" + `v\u2028u`;\u2028b = 1"));
+    }
+
+    @Test
+    public void keepsLineContinuations() throws IOException {
+        assertEquals("a=\"x\\\r\ny\";b=/c\\\\/;", streaming("a = \"x\\\r\ny\";\r\nb = /c\\\\/;\r\n"));
+        assertEquals("a='x\\\ny'", streaming("a = 'x\\\ny'"));
+    }
+
+    private static String streaming(String js) throws IOException {
+        StringWriter output = new StringWriter();
+        new StreamingJsMinifier(new StringReader(js), output).minify();
+        return output.toString();
+    }
+
+    private static String yui(String js) throws IOException {
+        StringWriter output = new StringWriter();
+        new JavaScriptCompressor(new StringReader(js), new ToolErrorReporter(true)).compress(output, -1, true, false,
+                false, false);
+        return output.toString();
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Minify Maven Plugin
+ * https://github.com/samaxes/minify-maven-plugin
+ *
+ * Copyright (c) 2009 samaxes.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.samaxes.maven.minify.plugin;
+
+import com.samaxes.maven.minify.common.Aggregation;
+import org.apache.maven.plugin.MojoFailureException;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class MinifyMojoTest {
+
+    @Test
+    public void sortsBundlesAfterTheirDependencies() throws MojoFailureException {
+        Map<String, Aggregation> bundles = bundles(
+                bundle("page.js", "a.js", "widgets.js", "common.js"),
+                bundle("widgets.js", "b.js", "common.js"),
+                bundle("other.js", "c.js"),
+                bundle("common.js", "d.js"));
+
+        assertEquals(Arrays.asList("common.js", "widgets.js", "page.js", "other.js"), names(bundles));
+    }
+
+    @Test
+    public void rejectsCycles() {
+        Map<String, Aggregation> bundles = bundles(
+                bundle("a.js", "a.js", "c.js"),
+                bundle("b.js", "b.js", "a.js"),
+                bundle("c.js", "c.js", "b.js"));
+
+        assertFailure(bundles, "The bundle [a.js] depends on itself through its dependencies.");
+        assertFailure(bundles(bundle("a.js", "a.js", "a.js")),
+                "The bundle [a.js] depends on itself through its dependencies.");
+    }
+
+    @Test
+    public void rejectsUnknownDependencies() {
+        assertFailure(bundles(bundle("a.js", "a.js", "style.css")), "The bundle [a.js] depends on [style.css],"
+                + " which is not a JavaScript bundle of the bundle configuration.");
+    }
+
+    @Test
+    public void acceptsFilesSharedWithDependencies() throws MojoFailureException {
+        MinifyMojo.checkSharedFiles(Arrays.asList(
+                bundle("common.js", "lib.js"),
+                bundle("widgets.js", "lib.js", "common.js"),
+                bundle("page.js", "lib.js", "widgets.js")));
+    }
+
+    @Test
+    public void rejectsFilesSharedByIndependentBundles() {
+        try {
+            MinifyMojo.checkSharedFiles(Arrays.asList(
+                    bundle("common.js", "lib.js"),
+                    bundle("a.js", "a.js", "common.js"),
+                    bundle("b.js", "a.js", "common.js")));
+            fail();
+        } catch (MojoFailureException e) {
+            assertEquals("The source file [a.js] is listed in the bundles [a.js] and [b.js], which do not depend on"
+                    + " each other and are compiled as chunks: list it in a bundle they both depend on.",
+                    e.getMessage());
+        }
+    }
+
+    /**
+     * Creates a JavaScript bundle.
+     *
+     * @param name         the bundle name
+     * @param file         the source file of the bundle
+     * @param dependencies the names of the bundles it depends on
+     */
+    private static Aggregation bundle(String name, String file, String... dependencies) {
+        Aggregation aggregation = new Aggregation();
+        aggregation.setType(Aggregation.AggregationType.js);
+        aggregation.setName(name);
+        aggregation.setFiles(Collections.singletonList(file));
+        aggregation.setDependencies(Arrays.asList(dependencies));
+        return aggregation;
+    }
+
+    private static Map<String, Aggregation> bundles(Aggregation... aggregations) {
+        Map<String, Aggregation> bundles = new LinkedHashMap<>();
+        for (Aggregation aggregation : aggregations) {
+            bundles.put(aggregation.getName(), aggregation);
+        }
+        return bundles;
+    }
+
+    private static List<String> names(Map<String, Aggregation> bundles) throws MojoFailureException {
+        List<String> names = new ArrayList<>();
+        for (Aggregation aggregation : MinifyMojo.sortByDependencies(bundles)) {
+            names.add(aggregation.getName());
+        }
+        return names;
+    }
+
+    private static void assertFailure(Map<String, Aggregation> bundles, String message) {
+        try {
+            MinifyMojo.sortByDependencies(bundles);
+            fail();
+        } catch (MojoFailureException e) {
+            assertEquals(message, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,44 @@
+/*! Preserved license comment */
+/**
+ * Regular comment, removed.
+ */
+var edge = (function () {
+    // Division or regular expression
+    var a = 10, b = 2, g = 1;
+    var ratio = a / b / g;
+    var pattern = /[/\]]+\/(x)/g;
+    var tests = [/a/, /b/i];
+    var text = "a // not a comment /* neither */";
+    var quoted = 'it\'s "quoted"';
+    var sum = a + +b - -g;
+    var incremented = a++ + ++b;
+
+    function check(value) {
+        if (typeof value === "string") return /^\s*$/.test(value);
+        return value instanceof RegExp ? value : !value;
+    }
+
+    // Automatic semicolon insertion depends on these line breaks
+    var c = a
+    var d = b
+    ++g
+    var e = function () {
+        return (
+            a + b
+        );
+    }
+
+    return {
+        ratio: ratio,
+        pattern: pattern,
+        tests: tests,
+        text: text,
+        quoted: quoted,
+        sum: sum,
+        incremented: incremented,
+        check: check,
+        c: c,
+        d: d,
+        e: e
+    };
+}());
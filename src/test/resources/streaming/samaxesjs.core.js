@@ -0,0 +1,36 @@
+/*!
+ * samaxesJS JavaScript Library
+ * TOC JavaScript Control v@VERSION
+ * http://code.google.com/p/samaxesjs/
+ *
+ * Copyright (c) 2008 samaxes.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * The samaxesJS global namespace object.
+ */
+var samaxesJS = function() {};
+
+try {
+    testEncoding('你好，中文测试');
+} catch (e) {
+}
+
+/**
+ * DEFINE_TEST should be false after Closure Compiler executes
+ * @define {boolean}
+ */
+var DEFINE_TEST = true;
+